@@ -0,0 +1,74 @@
+package com.starfishcoll.benchmarks;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.starfishcoll.ActorRegistry;
+import com.starfishcoll.BaseActor;
+import com.starfishcoll.headless.StubGL20;
+
+/**
+ * Common setup of the benchmarks: libGDX without a window (headless backend + stubbed GL),
+ * so a Stage can be created in the benchmark JVM.
+ * The measured actors have size and boundary polygon but no texture - no asset files are needed.
+ */
+
+public class BenchmarkSupport
+{
+    private static boolean started = false;
+
+    public static synchronized void startGdx()
+    {
+        if (started)  return;
+        started = true;
+
+        HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+        config.updatesPerSecond = -1;       // the application loop does nothing, it must not use the CPU
+        new HeadlessApplication( new ApplicationAdapter() { }, config );
+        Gdx.gl = Gdx.gl20 = StubGL20.create();
+    }
+
+    public static Stage createStage()
+    {
+        startGdx();
+        BaseActor.setWorldBounds(100000, 100000);
+        return new Stage();
+    }
+
+    // the stage is thrown away as a whole (removing actors one by one would be measured too)
+    public static void disposeStage(Stage stage)
+    {
+        ActorRegistry.release(stage);
+        stage.dispose();
+    }
+
+    // a collidable actor of the given size and polygon, like the ones of the game
+    public static <T extends BaseActor> T setUp(T actor, float width, float height, int numSides)
+    {
+        actor.setSize(width, height);
+        actor.setOrigin(width / 2, height / 2);
+        actor.setBoundaryPolygon(numSides);
+        return actor;
+    }
+
+
+    // ACTOR TYPES: two classes, so the typed queries have something to filter
+
+    public static class Obstacle extends BaseActor
+    {
+        public Obstacle(float x, float y, Stage s)
+        {
+            super(x, y, s);
+        }
+    }
+
+    public static class Collectible extends BaseActor
+    {
+        public Collectible(float x, float y, Stage s)
+        {
+            super(x, y, s);
+        }
+    }
+}
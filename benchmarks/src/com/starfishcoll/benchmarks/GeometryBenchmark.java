@@ -0,0 +1,139 @@
+package com.starfishcoll.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.badlogic.gdx.math.Intersector.MinimumTranslationVector;
+import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.starfishcoll.BaseActor;
+import com.starfishcoll.benchmarks.BenchmarkSupport.Collectible;
+import com.starfishcoll.benchmarks.BenchmarkSupport.Obstacle;
+
+/**
+ * The collision tests of BaseActor on one pair of actors, with boundary polygons of numSides vertices.
+ *    - "static": nothing moves between the calls, the cached world polygons are used (rocks, signs)
+ *    - "moving": the actor moves before every call, so its world polygon is recomputed (turtle, starfish)
+ * A pair is measured in both states: overlapping ("hit") and apart but with touching rectangles ("miss")
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GeometryBenchmark
+{
+    @Param({ "4", "8", "16", "32" })
+    public int numSides;
+
+    private Stage stage;
+    private BaseActor mover;
+    private BaseActor hitTarget;        // overlaps the mover
+    private BaseActor missTarget;       // bounding rectangles overlap, polygons do not
+    private MinimumTranslationVector mtv;
+    private float step = 0.5f;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        stage = BenchmarkSupport.createStage();
+        mover = BenchmarkSupport.setUp( new Collectible(100, 100, stage), 64, 64, numSides );
+        hitTarget = BenchmarkSupport.setUp( new Obstacle(140, 110, stage), 64, 64, numSides );
+        missTarget = BenchmarkSupport.setUp( new Obstacle(155, 155, stage), 64, 64, numSides );   // corner to corner
+        hitTarget.setBoundaryImmutable(true);
+        missTarget.setBoundaryImmutable(true);
+        mtv = new MinimumTranslationVector();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        BenchmarkSupport.disposeStage(stage);
+    }
+
+    // a tiny move back and forth: the cached polygon is invalid, the pair stays in the same state
+    private void wiggle()
+    {
+        mover.moveBy(step, 0);
+        step = -step;
+    }
+
+
+    // OVERLAPS
+
+    @Benchmark
+    public boolean overlapsHitStatic()
+    {
+        return mover.overlaps(hitTarget);
+    }
+
+    @Benchmark
+    public boolean overlapsMissStatic()
+    {
+        return mover.overlaps(missTarget);
+    }
+
+    @Benchmark
+    public boolean overlapsHitMoving()
+    {
+        wiggle();
+        return mover.overlaps(hitTarget);
+    }
+
+    @Benchmark
+    public boolean overlapsMissMoving()
+    {
+        wiggle();
+        return mover.overlaps(missTarget);
+    }
+
+
+    // PREVENT OVERLAP: the mover is pushed out, then put back, so every call resolves the same overlap
+
+    @Benchmark
+    public boolean preventOverlapHit()
+    {
+        mover.setPosition(100, 100);
+        return mover.preventOverlap(hitTarget, mtv);
+    }
+
+    @Benchmark
+    public boolean preventOverlapMiss()
+    {
+        wiggle();
+        return mover.preventOverlap(missTarget, mtv);
+    }
+
+
+    // WITHIN DISTANCE (used for the signs)
+
+    @Benchmark
+    public boolean isWithinDistanceNear()
+    {
+        return mover.isWithinDistance(4, hitTarget);
+    }
+
+    @Benchmark
+    public boolean isWithinDistanceFar()
+    {
+        return mover.isWithinDistance(4, missTarget);
+    }
+
+
+    // BUILDING THE POLYGON (done once per actor, when it is created)
+
+    @Benchmark
+    public BaseActor setBoundaryPolygon()
+    {
+        mover.setBoundaryPolygon(numSides);
+        return mover;
+    }
+}
@@ -0,0 +1,71 @@
+package com.starfishcoll.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.starfishcoll.BaseActor;
+import com.starfishcoll.benchmarks.BenchmarkSupport.Collectible;
+
+/**
+ * BaseActor.applyPhysics on a single actor with the settings of the turtle
+ *    - accelerating: a key is held (accelerateAtAngle before every step)
+ *    - coasting: no key, the actor decelerates - its speed is kept up so it never stops
+ * The actor is a collidable one, so the cost of keeping the spatial hash up to date is included.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PhysicsBenchmark
+{
+    private static final float DT = 1 / 60f;
+
+    private Stage stage;
+    private BaseActor actor;
+    private float angle = 0;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        stage = BenchmarkSupport.createStage();
+        actor = BenchmarkSupport.setUp( new Collectible(50000, 50000, stage), 64, 64, 8 );
+        actor.setAcceleration(400);
+        actor.setMaxSpeed(100);
+        actor.setDeceleration(400);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        BenchmarkSupport.disposeStage(stage);
+    }
+
+    @Benchmark
+    public BaseActor applyPhysicsAccelerating()
+    {
+        angle = (angle + 1) % 360;          // turning in a circle: stays within the world
+        actor.accelerateAtAngle(angle);
+        actor.applyPhysics(DT);
+        return actor;
+    }
+
+    @Benchmark
+    public BaseActor applyPhysicsCoasting()
+    {
+        angle = (angle + 1) % 360;
+        actor.setSpeed(100);
+        actor.setMotionAngle(angle);
+        actor.applyPhysics(DT);
+        return actor;
+    }
+}
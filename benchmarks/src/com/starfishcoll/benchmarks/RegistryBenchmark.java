@@ -0,0 +1,90 @@
+package com.starfishcoll.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.badlogic.gdx.utils.Array;
+import com.starfishcoll.BaseActor;
+import com.starfishcoll.benchmarks.BenchmarkSupport.Collectible;
+import com.starfishcoll.benchmarks.BenchmarkSupport.Obstacle;
+
+/**
+ * The stage-wide queries of BaseActor at growing stage sizes: stageSize actors, half Obstacles, half Collectibles,
+ * spread over the world with a fixed seed.
+ *    - getList: the typed list, iterated as the screens do (index loop)
+ *    - count: the number of actors of a type (the win check of the level)
+ *    - getNearby: the broadphase query of one actor (what a collision loop asks instead of the full list)
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RegistryBenchmark
+{
+    @Param({ "10", "100", "1000", "10000", "100000" })
+    public int stageSize;
+
+    private Stage stage;
+    private BaseActor probe;
+    private Array<Obstacle> nearby;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        stage = BenchmarkSupport.createStage();
+        // the density is kept: the world grows with the number of actors
+        float side = (float) Math.sqrt(stageSize) * 200;
+        BaseActor.setWorldBounds(side, side);
+        Random random = new Random(42);
+        for (int i = 0; i < stageSize; i++)
+        {
+            float x = random.nextFloat() * side;
+            float y = random.nextFloat() * side;
+            if (i % 2 == 0)  BenchmarkSupport.setUp( new Obstacle(x, y, stage), 64, 64, 8 );
+            else             BenchmarkSupport.setUp( new Collectible(x, y, stage), 64, 64, 8 );
+        }
+        probe = BenchmarkSupport.setUp( new Collectible(side / 2, side / 2, stage), 64, 64, 8 );
+        nearby = new Array<Obstacle>();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        BenchmarkSupport.disposeStage(stage);
+    }
+
+    @Benchmark
+    public float getList()
+    {
+        float sum = 0;
+        Array<Obstacle> obstacles = BaseActor.getList(stage, Obstacle.class);
+        for (int i = 0; i < obstacles.size; i++)
+            sum += obstacles.get(i).getX();
+        return sum;
+    }
+
+    @Benchmark
+    public int count()
+    {
+        return BaseActor.count(stage, Collectible.class);
+    }
+
+    @Benchmark
+    public int getNearby()
+    {
+        nearby.clear();
+        return probe.getNearby(Obstacle.class, 0, nearby).size;
+    }
+}
@@ -0,0 +1,123 @@
+package com.starfishcoll;
+
+import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.badlogic.gdx.utils.Pool;
+
+/**
+ * Part of Game FW   implemented during creating Starfish Collector game
+ *   Reuse of short-lived actors (effects like the Whirlpool) instead of building a new one every time
+ *
+ *        obtain() gives a free actor put back on the stage, or creates one with newObject() when none is free (miss).
+ *        The actor returns to the pool by itself when it is removed from the stage (remove(), Actions.removeActor()):
+ *        it leaves the stage and its registry, but keeps its animations - they are not loaded again at the next use.
+ *        On the way back BaseActor.reset() (override it in subclasses) clears the state of the previous life:
+ *        actions, color, transform, movement, animation time. The Actions themselves come from libGDX's own pools.
+ *        The pool belongs to one stage and is emptied with it (ActorRegistry.release): the animations of all the free
+ *        actors are released then (clear() works around a bug of libGDX 1.10.0, see there).
+ *        Statistics: peak (most actors in use at the same time), free, misses (obtain() had to create an actor).
+ */
+
+public abstract class ActorPool<T extends BaseActor> extends Pool<T>
+{
+    private Stage stage;
+    private int inUse;
+    private int peakInUse;
+    private int misses;
+
+    public ActorPool(Stage stage, int initialCapacity, int max)
+    {
+        super(initialCapacity, max);
+        this.stage = stage;
+        ActorRegistry.forStage(stage).addPool(this);
+    }
+
+    // the new actor must be created on the stage of the pool: new Whirlpool(0, 0, stage)
+    @Override
+    protected abstract T newObject();
+
+    public Stage getStage()
+    {
+        return stage;
+    }
+
+    @Override
+    public T obtain()
+    {
+        boolean miss = (getFree() == 0);
+        T actor = super.obtain();
+        if (miss)  misses++;
+        else       actor.attach(stage);         // back on the stage and in its registry
+        actor.pool = this;
+        inUse++;
+        peakInUse = Math.max(peakInUse, inUse);
+        return actor;
+    }
+
+    // an actor still on the stage is removed - remove() gives it back then
+    @Override
+    public void free(T actor)
+    {
+        if ( actor.getStage() != null || actor.isRegistered() )
+        {
+            actor.remove();
+            return;
+        }
+        inUse--;
+        super.free(actor);                  // -> reset(actor) -> actor.reset(), or discard(actor) if the pool is full
+    }
+
+    // called by BaseActor.remove()
+    @SuppressWarnings("unchecked")
+    void giveBack(BaseActor actor)
+    {
+        free( (T) actor );
+    }
+
+    // prepared actors: created on the stage, then removed at once
+    @Override
+    public void fill(int size)
+    {
+        for (int i = 0; i < size; i++)
+        {
+            T actor = newObject();
+            actor.pool = this;
+            inUse++;
+            actor.remove();
+        }
+    }
+
+    // every free actor is discarded: Pool.clear() of libGDX 1.10.0 pops while its counter goes up,
+    // so one call discards only half of them - the others would keep their animations (textures) after the stage
+    @Override
+    public void clear()
+    {
+        while (getFree() > 0)
+            super.clear();
+    }
+
+    // not kept (pool full or cleared): its animations are released, it will not come back
+    @Override
+    protected void discard(T actor)
+    {
+        actor.pool = null;
+        actor.releaseAnimations();
+    }
+
+
+    // STATISTICS
+
+    public int getPeak()
+    {
+        return peakInUse;
+    }
+
+    public int getInUse()
+    {
+        return inUse;
+    }
+
+    public int getMisses()
+    {
+        return misses;
+    }
+}
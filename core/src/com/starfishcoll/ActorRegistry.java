@@ -0,0 +1,264 @@
+package com.starfishcoll;
+
+import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.g2d.Animation;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.ObjectSet;
+
+/**
+ * Part of Game FW   implemented during creating Starfish Collector game
+ *   Typed registry of the BaseActors living on a Stage
+ *
+ *        Every BaseActor joins the registry of its stage in its constructor and leaves it in remove().
+ *        The actor is listed under its own class and under every superclass up to BaseActor,
+ *        so a query for a class gives the same actors as the old isInstance() scan of the stage.
+ *          - no reflection, no new list per query: the returned Array is the live, reusable view
+ *          - counting is O(1): the size of the view
+ *          - leaving is O(1) per class: the actor knows its index in each list, the last actor takes its place
+ *            (so the views are in no particular order)
+ *        The views must not be modified by the caller; iterate them with an index loop.
+ *        The registry also owns the SpatialHash of the stage (collision broadphase), its MovementSystem
+ *        and pins the cached animations used on the stage until its screen is disposed (with its ActorPools).
+ *        Culling: before the stage is drawn, the collidable actors inside the camera view are taken from the
+ *        SpatialHash and stamped with the number of the frame - the others are skipped by BaseActor.draw().
+ */
+
+public class ActorRegistry
+{
+    private static ObjectMap<Stage, ActorRegistry> registries = new ObjectMap<Stage, ActorRegistry>();
+
+    private ObjectMap<Class<?>, Array<BaseActor>> actorLists;   // class -> actors of that class (or of subclasses)
+    private SpatialHash spatialHash;                            // broadphase for the collidable actors of the stage
+    private MovementSystem movementSystem;                      // batched physics of the actors registered in it
+    private ObjectSet<Animation<TextureRegion>> pinnedAnimations;   // cached animations kept alive while the stage lives
+    private BaseActor cameraTarget;                             // the actor that aligned the camera of the stage last
+    private Array<ActorPool<?>> pools;                          // the actor pools of the stage, emptied with it
+
+    public static final float CULL_MARGIN = 32;     // extra border around the view: actors are drawn interpolated,
+                                                    // a bit behind the position the SpatialHash knows
+    private boolean culling;                        // the view of this frame has been set - draw() may skip actors
+    private int cullFrame;                          // stamp of the actors found in the view in this frame
+    private Rectangle cullView;                     // the camera view + margin, in world coordinates
+    private Array<BaseActor> visibleActors;         // reused result of the view query
+    private int culledCount, drawnCount;            // statistics of the last frame
+
+    private ActorRegistry()
+    {
+        actorLists = new ObjectMap<Class<?>, Array<BaseActor>>();
+        spatialHash = new SpatialHash(SpatialHash.DEFAULT_CELL_SIZE);
+        movementSystem = new MovementSystem();
+        pinnedAnimations = new ObjectSet<Animation<TextureRegion>>();
+        pools = new Array<ActorPool<?>>();
+        cullView = new Rectangle();
+        visibleActors = new Array<BaseActor>(false, 64, BaseActor.class);
+    }
+
+    // the registry of a given stage - created on first use
+    public static ActorRegistry forStage(Stage stage)
+    {
+        ActorRegistry registry = registries.get(stage);
+        if (registry == null)
+        {
+            registry = new ActorRegistry();
+            registries.put(stage, registry);
+        }
+        return registry;
+    }
+
+    // forget a stage (when its screen is disposed): the cached assets of its actors are released
+    public static void release(Stage stage)
+    {
+        ActorRegistry registry = detach(stage);
+        if (registry != null)  registry.releaseAssets();
+    }
+
+    // forget a stage, but keep its registry alive: the next actors of the stage join a new one
+    // (BaseScreen.reset: the old actors release their assets only after the new ones have obtained them)
+    static ActorRegistry detach(Stage stage)
+    {
+        return registries.remove(stage);
+    }
+
+    void releaseAssets()
+    {
+        Array<BaseActor> actors = listOf(BaseActor.class);
+        for (int i = 0; i < actors.size; i++)
+            actors.get(i).releaseAnimations();
+        for (int i = 0; i < pools.size; i++)
+            pools.get(i).clear();          // the free pooled actors release their animations
+        pools.clear();
+        for (Animation<TextureRegion> anim : pinnedAnimations)
+            AssetCache.release(anim);
+        pinnedAnimations.clear();
+    }
+
+    void addPool(ActorPool<?> pool)
+    {
+        pools.add(pool);
+    }
+
+    // the stage keeps one reference to every cached animation used on it
+    void pin(Animation<TextureRegion> anim)
+    {
+        if ( pinnedAnimations.add(anim) )
+            AssetCache.retain(anim);
+    }
+
+
+    // JOIN / LEAVE: the actor is added to the list of every class from its own up to BaseActor
+    // (its index in each list is kept in BaseActor.registrySlots, by class level: BaseActor is level 0)
+
+    void add(BaseActor actor)
+    {
+        if (actor.registrySlots == null)
+            actor.registrySlots = new int[ levelOf(actor.getClass()) + 1 ];
+        Class<?> theClass = actor.getClass();
+        for (int level = actor.registrySlots.length - 1; level >= 0; level--)
+        {
+            Array<BaseActor> list = listOf(theClass);
+            actor.registrySlots[level] = list.size;
+            list.add(actor);
+            theClass = theClass.getSuperclass();
+        }
+    }
+
+    void remove(BaseActor actor)
+    {
+        Class<?> theClass = actor.getClass();
+        for (int level = actor.registrySlots.length - 1; level >= 0; level--)
+        {
+            Array<BaseActor> list = listOf(theClass);
+            int slot = actor.registrySlots[level];
+            list.removeIndex(slot);             // unordered list: the last actor is moved into the slot
+            if (slot < list.size)  list.get(slot).registrySlots[level] = slot;
+            theClass = theClass.getSuperclass();
+        }
+    }
+
+    // the number of classes from BaseActor down to the given one
+    private static int levelOf(Class<?> theClass)
+    {
+        int level = 0;
+        for (; theClass != BaseActor.class; theClass = theClass.getSuperclass())
+            level++;
+        return level;
+    }
+
+
+    // VIEW-FRUSTUM CULLING (called once a frame, before the stage is drawn)
+
+    void beginCulling(Camera camera)
+    {
+        float zoom = (camera instanceof OrthographicCamera) ? ((OrthographicCamera) camera).zoom : 1;
+        float halfWidth = camera.viewportWidth * zoom / 2 + CULL_MARGIN;
+        float halfHeight = camera.viewportHeight * zoom / 2 + CULL_MARGIN;
+        cullView.set( camera.position.x - halfWidth, camera.position.y - halfHeight, 2 * halfWidth, 2 * halfHeight );
+
+        cullFrame++;
+        culledCount = 0;
+        drawnCount = 0;
+        culling = true;
+
+        // only the cells under the view are visited, not the whole stage
+        visibleActors.clear();
+        spatialHash.query( cullView.x, cullView.y, cullView.x + cullView.width, cullView.y + cullView.height,
+                BaseActor.class, null, visibleActors );
+        for (int i = 0; i < visibleActors.size; i++)
+        {
+            BaseActor actor = visibleActors.get(i);     // the cells may reach beyond the view: exact test
+            if ( isInView(actor.getBoundsMinX(), actor.getBoundsMinY(), actor.getBoundsMaxX(), actor.getBoundsMaxY()) )
+                actor.visibleFrame = cullFrame;
+        }
+        visibleActors.clear();      // no references kept until the next frame
+    }
+
+    boolean isCulling()
+    {
+        return culling;
+    }
+
+    int getCullFrame()
+    {
+        return cullFrame;
+    }
+
+    // for the actors not in the SpatialHash (no boundary polygon): a direct test against the view
+    boolean isInView(float minX, float minY, float maxX, float maxY)
+    {
+        return minX <= cullView.x + cullView.width && maxX >= cullView.x
+                && minY <= cullView.y + cullView.height && maxY >= cullView.y;
+    }
+
+    void countCulled()
+    {
+        culledCount++;
+    }
+
+    void countDrawn()
+    {
+        drawnCount++;
+    }
+
+    // actors skipped / submitted to the batch in the last drawn frame
+    public int getCulledCount()
+    {
+        return culledCount;
+    }
+
+    public int getDrawnCount()
+    {
+        return drawnCount;
+    }
+
+
+    // QUERIES
+
+    BaseActor getCameraTarget()
+    {
+        return cameraTarget;
+    }
+
+    void setCameraTarget(BaseActor actor)
+    {
+        cameraTarget = actor;
+    }
+
+    public SpatialHash getSpatialHash()
+    {
+        return spatialHash;
+    }
+
+    public MovementSystem getMovementSystem()
+    {
+        return movementSystem;
+    }
+
+    // the live list of actors of the given type - no copy is made, unordered (see BaseActor.getList)
+    @SuppressWarnings("unchecked")
+    public <T extends BaseActor> Array<T> getList(Class<T> type)
+    {
+        return (Array<T>) listOf(type);
+    }
+
+    public int count(Class<? extends BaseActor> type)
+    {
+        Array<BaseActor> list = actorLists.get(type);
+        return (list == null) ? 0 : list.size;
+    }
+
+    private Array<BaseActor> listOf(Class<?> type)
+    {
+        Array<BaseActor> list = actorLists.get(type);
+        if (list == null)
+        {
+            list = new Array<BaseActor>(false, 16, BaseActor.class);
+            actorLists.put(type, list);
+        }
+        return list;
+    }
+}
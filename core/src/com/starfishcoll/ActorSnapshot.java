@@ -0,0 +1,141 @@
+package com.starfishcoll;
+
+import com.badlogic.gdx.scenes.scene2d.Actor;
+import com.badlogic.gdx.scenes.scene2d.Group;
+import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.SnapshotArray;
+
+/**
+ * Part of Game FW   implemented during creating Starfish Collector game
+ *   The mutable state of the actors of a stage in one float buffer - for restarts, checkpoints, quicksave
+ *
+ *        capture(): every BaseActor of the stage writes its state (BaseActor.writeState) into the buffer:
+ *        whether it is on the stage, batched movement, position, rotation, velocity, animation time, color and the
+ *        state of its subclass (Starfish: collected, Sign: viewing). add() takes actors off the stage as well
+ *        (e.g. the parked actors of a LevelStreamer).
+ *        restore(): the same actor objects are set back in place - no actor, array or animation is made:
+ *          - the actors of the snapshot rejoin the stage (or leave it) as they were, then read their state back
+ *          - the actors that joined the stage after the capture are removed (a pooled one goes back to its pool)
+ *          - the actors on the stage get their z-order back (an actor put back onto the stage was added on top),
+ *            the other children of the stage (e.g. a background that is not a BaseActor) keep their places
+ *        The snapshot keeps its actors: a removed one keeps its animations until the snapshot is cleared.
+ *        Pooled actors (short effects, e.g. Whirlpool) are not captured: they cannot be held outside their pool.
+ *        Actions are not saved: a subclass starts its own again in readState() if it needs them (Starfish).
+ */
+
+public class ActorSnapshot
+{
+    private static int lastStamp = 0;       // marks the actors of the snapshot being restored
+
+    private Stage stage;
+    private Array<BaseActor> actors;        // in the order of their states in the buffer (and the z-order of the stage)
+    private FloatArray data;                // per actor: on stage, batched, then BaseActor.writeState()
+
+    public ActorSnapshot()
+    {
+        actors = new Array<BaseActor>(false, 64, BaseActor.class);
+        data = new FloatArray(64 * 16);
+    }
+
+    // the actors of the stage now, from back to front (the previous state of the snapshot is dropped)
+    public void capture(Stage stage)
+    {
+        clear();
+        this.stage = stage;
+        SnapshotArray<Actor> children = stage.getRoot().getChildren();
+        for (int i = 0; i < children.size; i++)
+        {
+            Actor child = children.get(i);
+            if (child instanceof BaseActor && ((BaseActor) child).pool == null)
+                add( (BaseActor) child );
+        }
+    }
+
+    // one more actor of the stage of the snapshot - also one that is not on the stage now
+    // (one that is on the stage is restored in front of the actors added before it)
+    public void add(BaseActor actor)
+    {
+        actors.add(actor);
+        actor.retain();
+        data.add( actor.isRegistered() ? 1 : 0, actor.isBatchedMovement() ? 1 : 0 );
+        actor.writeState(data);
+    }
+
+    public void restore()
+    {
+        if (stage == null)  return;
+        int stamp = ++lastStamp;
+        for (int i = 0; i < actors.size; i++)
+            actors.get(i).snapshotStamp = stamp;
+
+        // the newcomers leave (backwards: the list shrinks)
+        Array<BaseActor> list = BaseActor.getList(stage, BaseActor.class);
+        for (int i = list.size - 1; i >= 0; i--)
+        {
+            if (i >= list.size)  continue;         // (a removed group took more than one actor with it)
+            BaseActor actor = list.get(i);
+            if (actor.snapshotStamp != stamp)  actor.remove();
+        }
+
+        float[] items = data.items;
+        int offset = 0;
+        for (int i = 0; i < actors.size; i++)
+        {
+            BaseActor actor = actors.get(i);
+            boolean onStage = items[offset] != 0;
+            boolean batched = items[offset + 1] != 0;
+            offset += 2;
+            actor.revive();
+            if (onStage && !actor.isRegistered())  actor.attach(stage);
+            else if (!onStage && actor.isRegistered())  actor.detach();
+            offset = actor.readState(items, offset);
+            actor.setBatchedMovement(batched);
+        }
+
+        // the z-order of the capture: the places of the snapshot actors among the children of the stage are
+        // handed out to them again in the order of the snapshot - the other children are not moved
+        Group root = stage.getRoot();
+        SnapshotArray<Actor> children = root.getChildren();
+        int slot = 0;
+        for (int i = 0; i < actors.size; i++)
+        {
+            BaseActor actor = actors.get(i);
+            if (actor.getParent() != root)  continue;
+            while ( !isRestored(children.get(slot), stamp) )  slot++;
+            children.set(slot++, actor);
+        }
+    }
+
+    private static boolean isRestored(Actor child, int stamp)
+    {
+        return (child instanceof BaseActor) && ((BaseActor) child).snapshotStamp == stamp;
+    }
+
+    public boolean isEmpty()
+    {
+        return stage == null;
+    }
+
+    // the number of floats of the state (about 12 per actor)
+    public int getSize()
+    {
+        return data.size;
+    }
+
+    public int getActorCount()
+    {
+        return actors.size;
+    }
+
+    // the actors are let go: the ones removed since the capture release their animations now
+    public void clear()
+    {
+        for (int i = 0; i < actors.size; i++)
+            actors.get(i).letGo();
+        actors.clear();
+        data.clear();
+        stage = null;
+    }
+}
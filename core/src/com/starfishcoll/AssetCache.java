@@ -0,0 +1,436 @@
+package com.starfishcoll;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.TextureLoader.TextureParameter;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.Texture.TextureFilter;
+import com.badlogic.gdx.graphics.g2d.Animation;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.TextureAtlasData;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.ObjectSet;
+
+/**
+ * Part of Game FW   implemented during creating Starfish Collector game
+ *   Reference counted cache of the textures and animations loaded by BaseActor
+ *
+ *        Identical file names (and identical sheet parameters) share one Texture and one Animation object.
+ *        Every obtain...() must be paired with a release(): BaseActor releases its animations in remove(),
+ *        the ActorRegistry of a stage holds one more reference until its screen is disposed
+ *        (so e.g. the Whirlpool sheet is decoded only once per screen, not on every collected Starfish).
+ *        A texture is disposed when its last reference is released.
+ *        Instrumentation: number of textures alive and their estimated memory.
+ *
+ *        Atlas: when the build has packed the sprites into ATLAS_FILE (Gradle task core:packTextures),
+ *        the old file names are resolved to regions of the atlas (region name = file name without extension),
+ *        so a whole stage is drawn from one or two textures. Files not in the atlas are loaded one by one.
+ *        The lookup can be switched off (setAtlasEnabled) to compare with the loose files, e.g. in RenderCallTest.
+ *
+ *        Preloading: the assets queued by a screen are decoded in the background by an AssetManager
+ *        (see LoadingScreen) and are taken over by the cache when the screen's actors ask for them.
+ */
+
+public class AssetCache
+{
+    public static final String ATLAS_FILE = "sprites.atlas";
+
+    private static class TextureEntry
+    {
+        Texture texture;
+        TextureAtlas atlas;         // the entry of ATLAS_FILE holds the atlas instead of a single texture
+        String preloadedFile;       // taken over from the AssetManager: unloaded there (by this name), not disposed here
+        int references;
+    }
+
+    private static class AnimationEntry
+    {
+        String key;
+        Animation<TextureRegion> animation;
+        String[] textureKeys;       // the textures the frames are cut from
+        int references;
+    }
+
+    private static AssetManager manager;                    // background decoding of the queued assets
+    private static ObjectSet<String> atlasRegionNames;      // the regions of ATLAS_FILE (empty if it was not built)
+    private static boolean atlasEnabled = true;             // false: every file is loaded on its own
+
+    private static ObjectMap<String, TextureEntry> textures = new ObjectMap<String, TextureEntry>();
+    private static ObjectMap<String, AnimationEntry> animations = new ObjectMap<String, AnimationEntry>();
+    private static ObjectMap<Animation<TextureRegion>, AnimationEntry> animationEntries =
+            new ObjectMap<Animation<TextureRegion>, AnimationEntry>();      // Animation has identity equals()
+
+
+    // ANIMATIONS - the same loading rules as the old BaseActor methods
+
+    // Version 1: from separate files
+    public static Animation<TextureRegion> obtainAnimationFromFiles(String[] fileNames, float frameDuration, boolean loop)
+    {
+        StringBuilder keyBuilder = new StringBuilder("files:");
+        for (String fileName : fileNames)
+            keyBuilder.append(fileName).append('|');
+        keyBuilder.append(frameDuration).append('|').append(loop);
+        String key = keyBuilder.toString();
+
+        AnimationEntry entry = animations.get(key);
+        if (entry == null)
+        {
+            Array<TextureRegion> textureArray = new Array<TextureRegion>();
+            String[] textureKeys = new String[fileNames.length];
+            for (int n = 0; n < fileNames.length; n++)
+            {
+                TextureRegion region = obtainAtlasRegion(fileNames[n]);
+                if (region != null)
+                    textureKeys[n] = ATLAS_FILE;
+                else
+                {
+                    textureKeys[n] = textureKey(fileNames[n], false);
+                    region = new TextureRegion( obtainTexture(fileNames[n], false) );
+                }
+                textureArray.add(region);
+            }
+            entry = addAnimation(key, new Animation<TextureRegion>(frameDuration, textureArray), loop, textureKeys);
+        }
+        entry.references++;
+        return entry.animation;
+    }
+
+    // Version 2: from a spritesheet cut into rows x cols frames
+    public static Animation<TextureRegion> obtainAnimationFromSheet(String fileName, int rows, int cols,
+                                                                    float frameDuration, boolean loop)
+    {
+        String key = "sheet:" + fileName + '|' + rows + '|' + cols + '|' + frameDuration + '|' + loop;
+
+        AnimationEntry entry = animations.get(key);
+        if (entry == null)
+        {
+            TextureRegion sheet = obtainAtlasRegion(fileName);
+            String[] textureKeys = { ATLAS_FILE };
+            if (sheet == null)
+            {
+                sheet = new TextureRegion( obtainTexture(fileName, true) );
+                textureKeys[0] = textureKey(fileName, true);
+            }
+            int frameWidth = sheet.getRegionWidth() / cols;         // set width and height of 1 image
+            int frameHeight = sheet.getRegionHeight() / rows;
+            TextureRegion[][] temp = sheet.split(frameWidth, frameHeight);
+
+            Array<TextureRegion> textureArray = new Array<TextureRegion>();
+            for (int r = 0; r < rows; r++)
+                for (int c = 0; c < cols; c++)
+                    textureArray.add( temp[r][c] );
+
+            entry = addAnimation(key, new Animation<TextureRegion>(frameDuration, textureArray), loop, textureKeys);
+        }
+        entry.references++;
+        return entry.animation;
+    }
+
+    // one more user of an animation obtained before
+    public static void retain(Animation<TextureRegion> animation)
+    {
+        AnimationEntry entry = animationEntries.get(animation);
+        if (entry != null)  entry.references++;
+    }
+
+    // one user less - the animation and its textures go when nobody uses them
+    public static void release(Animation<TextureRegion> animation)
+    {
+        AnimationEntry entry = animationEntries.get(animation);
+        if (entry == null)  return;
+        entry.references--;
+        if (entry.references > 0)  return;
+
+        animations.remove(entry.key);
+        animationEntries.remove(animation);
+        for (String textureKey : entry.textureKeys)
+            releaseTextureKey(textureKey);
+    }
+
+    private static AnimationEntry addAnimation(String key, Animation<TextureRegion> anim, boolean loop, String[] textureKeys)
+    {
+        if (loop)  anim.setPlayMode(Animation.PlayMode.LOOP);
+        else       anim.setPlayMode(Animation.PlayMode.NORMAL);
+
+        AnimationEntry entry = new AnimationEntry();
+        entry.key = key;
+        entry.animation = anim;
+        entry.textureKeys = textureKeys;
+        entry.references = 0;
+        animations.put(key, entry);
+        animationEntries.put(anim, entry);
+        return entry;
+    }
+
+
+    // IMAGES OF WIDGETS that are not actors (buttons): a region of the atlas or a whole texture
+
+    public static TextureRegion obtainRegion(String fileName)
+    {
+        TextureRegion region = obtainAtlasRegion(fileName);
+        if (region != null)  return region;
+        return new TextureRegion( obtainTexture(fileName, false) );
+    }
+
+    public static void releaseRegion(String fileName)
+    {
+        if ( isInAtlas(fileName) )  releaseTextureKey(ATLAS_FILE);
+        else                        releaseTextureKey( textureKey(fileName, false) );
+    }
+
+
+    // ATLAS
+
+    // switch the atlas lookup on/off - only while nothing is obtained from the cache (e.g. before a game is created):
+    // a file would be released from another place than it was obtained from
+    public static void setAtlasEnabled(boolean enabled)
+    {
+        atlasEnabled = enabled;
+        atlasRegionNames = null;        // the pack file is read again at the next lookup
+    }
+
+    public static boolean isAtlasEnabled()
+    {
+        return atlasEnabled;
+    }
+
+    // the region packed from the given file, with one more reference to the atlas - null if it is not packed
+    private static TextureRegion obtainAtlasRegion(String fileName)
+    {
+        if ( !isInAtlas(fileName) )  return null;
+        TextureEntry entry = textures.get(ATLAS_FILE);
+        entry.references++;
+        return entry.atlas.findRegion( regionName(fileName) );
+    }
+
+    // the file has a region in the atlas, the atlas is loaded (with the first region asked for)
+    private static boolean isInAtlas(String fileName)
+    {
+        if ( !isPacked(fileName) )  return false;
+
+        if ( !textures.containsKey(ATLAS_FILE) )
+        {
+            TextureEntry entry = new TextureEntry();
+            if ( preloaded(ATLAS_FILE, TextureAtlas.class) )
+            {
+                entry.atlas = manager.get(ATLAS_FILE, TextureAtlas.class);     // decoded in the background before
+                entry.preloadedFile = ATLAS_FILE;
+            }
+            else
+                entry.atlas = new TextureAtlas( Gdx.files.internal(ATLAS_FILE) );
+            entry.references = 0;
+            textures.put(ATLAS_FILE, entry);
+        }
+        return true;
+    }
+
+    // the pack file is parsed only once, without loading its pages
+    private static boolean isPacked(String fileName)
+    {
+        if (!atlasEnabled)  return false;
+        if (atlasRegionNames == null)
+        {
+            atlasRegionNames = new ObjectSet<String>();
+            FileHandle packFile = Gdx.files.internal(ATLAS_FILE);
+            if ( packFile.exists() )
+                for (TextureAtlasData.Region region : new TextureAtlasData(packFile, packFile.parent(), false).getRegions())
+                    atlasRegionNames.add(region.name);
+        }
+        return atlasRegionNames.contains( regionName(fileName) );
+    }
+
+    private static String regionName(String fileName)
+    {
+        int dot = fileName.lastIndexOf('.');
+        return (dot < 0) ? fileName : fileName.substring(0, dot);
+    }
+
+
+    // TEXTURES
+
+    public static Texture obtainTexture(String fileName, boolean mipMaps)
+    {
+        String key = textureKey(fileName, mipMaps);
+        TextureEntry entry = textures.get(key);
+        if (entry == null)
+        {
+            entry = new TextureEntry();
+            if ( preloaded(fileName, Texture.class)
+                    && manager.get(fileName, Texture.class).getTextureData().useMipMaps() == mipMaps )
+            {
+                entry.texture = manager.get(fileName, Texture.class);         // decoded in the background before
+                entry.preloadedFile = fileName;
+            }
+            else
+            {
+                entry.texture = new Texture( Gdx.files.internal(fileName), mipMaps );
+                entry.texture.setFilter( TextureFilter.Linear, TextureFilter.Linear );
+            }
+            entry.references = 0;
+            textures.put(key, entry);
+        }
+        entry.references++;
+        return entry.texture;
+    }
+
+    public static void releaseTexture(String fileName, boolean mipMaps)
+    {
+        releaseTextureKey( textureKey(fileName, mipMaps) );
+    }
+
+    private static void releaseTextureKey(String key)
+    {
+        TextureEntry entry = textures.get(key);
+        if (entry == null)  return;
+        entry.references--;
+        if (entry.references > 0)  return;
+        textures.remove(key);
+        if (entry.preloadedFile != null)  manager.unload(entry.preloadedFile);
+        else if (entry.atlas != null)     entry.atlas.dispose();
+        else                              entry.texture.dispose();
+    }
+
+    private static String textureKey(String fileName, boolean mipMaps)
+    {
+        return mipMaps ? fileName + "#mipmaps" : fileName;
+    }
+
+
+    // PRELOADING: screens queue their assets (BaseScreen.queueAssets), an AssetManager decodes them in the background
+    // obtainTexture() and the atlas lookup take over the preloaded objects instead of loading them again
+
+    public static void queueTexture(String fileName, boolean mipMaps)
+    {
+        if ( isPacked(fileName) )
+        {
+            if ( !textures.containsKey(ATLAS_FILE) && !getManager().contains(ATLAS_FILE) )
+                getManager().load(ATLAS_FILE, TextureAtlas.class);
+            return;
+        }
+        if ( textures.containsKey( textureKey(fileName, mipMaps) ) || getManager().contains(fileName) )  return;
+
+        TextureParameter parameter = new TextureParameter();
+        parameter.genMipMaps = mipMaps;
+        parameter.minFilter = TextureFilter.Linear;
+        parameter.magFilter = TextureFilter.Linear;
+        getManager().load(fileName, Texture.class, parameter);
+    }
+
+    // a step of the background loading (called once per frame by the LoadingScreen) - true when everything is resident
+    public static boolean updateLoading()
+    {
+        return getManager().update();
+    }
+
+    // block until every queued asset is loaded (switching screens without a LoadingScreen)
+    public static void finishLoading()
+    {
+        getManager().finishLoading();
+    }
+
+    public static boolean isLoadingFinished()
+    {
+        return getManager().isFinished();
+    }
+
+    public static float getLoadingProgress()
+    {
+        return getManager().getProgress();
+    }
+
+    // preloaded assets the new screen did not use are given back to the AssetManager
+    public static void releaseUnclaimedPreloads()
+    {
+        Array<String> names = getManager().getAssetNames();
+        for (int i = 0; i < names.size; i++)
+        {
+            String name = names.get(i);
+            if ( !isClaimed(name) && getManager().isLoaded(name) && !isAtlasPage(name) )
+                getManager().unload(name);
+        }
+    }
+
+    private static boolean isClaimed(String managerFile)
+    {
+        for (ObjectMap.Entry<String, TextureEntry> e : textures.entries())
+            if ( managerFile.equals(e.value.preloadedFile) )  return true;
+        return false;
+    }
+
+    // the pages of the atlas are dependencies of ATLAS_FILE in the AssetManager, they go with it
+    private static boolean isAtlasPage(String managerFile)
+    {
+        return !managerFile.equals(ATLAS_FILE) && getManager().isLoaded(ATLAS_FILE)
+                && getManager().getDependencies(ATLAS_FILE) != null
+                && getManager().getDependencies(ATLAS_FILE).contains(managerFile, false);
+    }
+
+    private static boolean preloaded(String fileName, Class<?> type)
+    {
+        return manager != null && manager.isLoaded(fileName, type);
+    }
+
+    private static AssetManager getManager()
+    {
+        if (manager == null)  manager = new AssetManager();
+        return manager;
+    }
+
+
+    // INSTRUMENTATION
+
+    // number of textures alive (atlas pages counted one by one)
+    public static int getTextureCount()
+    {
+        int count = 0;
+        for (ObjectMap.Entry<String, TextureEntry> e : textures.entries())
+            count += (e.value.atlas != null) ? e.value.atlas.getTextures().size : 1;
+        return count;
+    }
+
+    public static int getAnimationCount()
+    {
+        return animations.size;
+    }
+
+    // estimated video memory of the cached textures in bytes (mipmaps add one third)
+    public static long getEstimatedTextureBytes()
+    {
+        long bytes = 0;
+        for (ObjectMap.Entry<String, TextureEntry> e : textures.entries())
+        {
+            if (e.value.atlas != null)
+                for (Texture page : e.value.atlas.getTextures())
+                    bytes += estimatedBytes(page);
+            else
+                bytes += estimatedBytes(e.value.texture);
+        }
+        return bytes;
+    }
+
+    private static long estimatedBytes(Texture t)
+    {
+        long size = (long) t.getWidth() * t.getHeight() * bytesPerPixel( t.getTextureData().getFormat() );
+        if ( t.getTextureData().useMipMaps() )  size += size / 3;
+        return size;
+    }
+
+    private static int bytesPerPixel(Pixmap.Format format)
+    {
+        if (format == null)  return 4;
+        switch (format)
+        {
+            case Alpha:
+            case Intensity:         return 1;
+            case LuminanceAlpha:
+            case RGB565:
+            case RGBA4444:          return 2;
+            case RGB888:            return 3;
+            default:                return 4;
+        }
+    }
+}
@@ -1,22 +1,17 @@
 package com.starfishcoll;
 
-import java.util.ArrayList;
-
 import com.badlogic.gdx.math.*;                             // Vector2, Polygon, Rectangle, MathUtils...
 import com.badlogic.gdx.math.Intersector.MinimumTranslationVector;
-import com.badlogic.gdx.scenes.scene2d.Actor;
 import com.badlogic.gdx.scenes.scene2d.Group;
 import com.badlogic.gdx.scenes.scene2d.Stage;
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.Pool.Poolable;
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.Texture;
-import com.badlogic.gdx.graphics.Texture.TextureFilter;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.graphics.g2d.Animation;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.graphics.Camera;
-import com.badlogic.gdx.utils.viewport.Viewport;
 
 
 /**
@@ -28,30 +23,63 @@ import com.badlogic.gdx.utils.viewport.Viewport;
  *          - set size and position of actor and add it to main stage
  *          - create and control image based animations for actor
  *          - handle actors on a stage
- *          - handle movement and collision detection
+ *          - handle movement and collision detection (broadphase: SpatialHash of the stage)
  *          - align camera to actor movement
  *          - handle more actor together as a group
+ *          - save and restore its mutable state in a float buffer (see ActorSnapshot)
  *
  *          03/01/2022 - last: 20/01/2022
  */
 
-public class BaseActor extends Group            // Group extends Actor...
+public class BaseActor extends Group implements Poolable        // Group extends Actor...
 {
-    private static String packageName = "com.starfishcoll.";
     private static Rectangle worldBounds;       // the boundaries of the game world - static
 
     private Animation<TextureRegion> animation;     // animation with images in an array
+    private Array<Animation<TextureRegion>> ownedAnimations;    // animations obtained from the AssetCache
     protected float elapsedTime;        // to control animation time
     protected float fadingTime;        // to synchronize animations
     private boolean animationPaused;
 
-    private Vector2 velocityVec;        // movement vectors
-    private Vector2 accelerationVec;
-    private float maxSpeed;             // movable objects will set the following 3 values in their constructors
+    Vector2 velocityVec;                // movement vectors (package level: kept in step with the MovementSystem)
+    Vector2 accelerationVec;
+    float maxSpeed;                     // movable objects will set the following 3 values in their constructors
     private float acceleration;
-    private float deceleration;
+    float deceleration;
+    private MovementSystem movementSystem;  // not null: moved by the batched system of the stage, not by applyPhysics()
+    int movementIndex;                      // slot in the arrays of the MovementSystem (-1: none)
 
     private Polygon boundaryPolygon;       // boundary polygon for collision detection
+    private MinimumTranslationVector overlapMtv;   // reused result of preventOverlap(BaseActor)
+    private Rectangle boundaryRectangle;   // cached bounding rectangle of the world-space polygon
+    private boolean boundaryValid;         // false until the first computation (and after setBoundaryPolygon)
+    private boolean boundaryImmutable;     // static actor: the cached boundary is never recomputed
+
+    private static long boundaryRecomputes;        // instrumentation of the boundary cache
+    private static long boundaryRecomputeSkips;
+    private static Polygon distancePolygon = new Polygon( new float[6] );     // scratch polygon of isWithinDistance
+
+    private Stage registeredStage;          // the stage whose ActorRegistry lists this actor
+    private ActorRegistry registry;         // ... and its registry (looked up once)
+    int[] registrySlots;                    // its index in the registry list of each class, by class level
+    int visibleFrame;                       // culling: the last frame this actor was found in the camera view
+    ActorPool<?> pool;                      // not null: returns to this pool when removed (see ActorPool)
+
+    private static float renderAlpha = 1;   // fixed timestep: position of the frame between the last two ticks
+    private float previousX, previousY, previousRotation;   // transform at the previous tick
+    private boolean hasPreviousTransform;
+
+    // broadphase bookkeeping: the cell range of the stage's SpatialHash this actor is stored in
+    private SpatialHash spatialHash;
+    boolean inSpatialHash;
+    int cellMinX, cellMinY, cellMaxX, cellMaxY;
+    // narrow phase bookkeeping of the current ContactFinder run: group membership and index in the group
+    int moverStamp, moverSlot, targetStamp, targetSlot;
+
+    // snapshots (see ActorSnapshot): an actor kept by a snapshot keeps its animations even if it is removed
+    int snapshotStamp;                      // marks the actors of the snapshot being restored
+    private int snapshotCount;              // the snapshots keeping this actor
+    private boolean releasePending;         // released while kept: the animations go when the last snapshot lets it go
 
 
     // CONSTRUCTOR
@@ -62,7 +90,8 @@ public class BaseActor extends Group            // Group extends Actor...
         super();
         // perform additional initialization tasks
         setPosition(x,y);       // Actor method
-        stage.addActor(this);       // add itself to Stage
+        inSpatialHash = false;                      // collidable only after setBoundaryPolygon()
+        attach(stage);          // add itself to Stage and to its registry
 
         animation = null;
         elapsedTime = 0;
@@ -74,35 +103,144 @@ public class BaseActor extends Group            // Group extends Actor...
         acceleration = 0;                           // movable objects will set these values in their constructors
         deceleration = 0;
         maxSpeed = 1000;
+        movementSystem = null;
+        movementIndex = -1;
+
+        overlapMtv = new MinimumTranslationVector();
+        boundaryRectangle = new Rectangle();
+        boundaryValid = false;
+        boundaryImmutable = false;
     }
 
 
     // HANDLING ACTORS AS A LIST
-    // @param:  Stage, Classname
+    // @param:  Stage, Class
     // This method gives the list of actors of a given type on a given stage
     // Typical Actor method, but can not be linked to any Actor object -> it should be static
-    public static ArrayList<BaseActor> getList(Stage stage, String className)
+    // The list comes from the typed registry of the stage: it is a live view, do not modify it
+    // It is in no particular order, and the order changes whenever an actor leaves (the last one takes its place):
+    // do not rely on it, e.g. for drawing order (that is the order of the stage), and do not remove actors
+    // while iterating it forwards
+    public static <T extends BaseActor> Array<T> getList(Stage stage, Class<T> type)
     {
-        ArrayList<BaseActor> list = new ArrayList<BaseActor>();
-        Class theClass = null;
+        return ActorRegistry.forStage(stage).getList(type);
+    }
 
-        try
-        { theClass = Class.forName(packageName + className); }    // create an object of the class of the given name (full name = with package name)
-        catch (Exception error)
-        { error.printStackTrace(); }
+    // Count the number of instances of a given class on a given stage
+    public static int count(Stage stage, Class<? extends BaseActor> type)
+    {
+        return ActorRegistry.forStage(stage).count(type);
+    }
 
-        for (Actor a : stage.getActors())
-        {
-            if ( theClass.isInstance( a ) )     // "a" is instance of theClass?
-                list.add( (BaseActor) a );
-        }
-        return list;
+    // join a stage: as a child of its root, in its typed registry and - if collidable - in its SpatialHash
+    // (in the constructor, and again when a pooled actor is reused)
+    void attach(Stage stage)
+    {
+        stage.addActor(this);
+        registry = ActorRegistry.forStage(stage);
+        registry.add(this);
+        registeredStage = stage;
+        visibleFrame = -1;
+        spatialHash = registry.getSpatialHash();
+        if (boundaryPolygon != null)  spatialHash.insert(this);
     }
 
-    // Count the number of instances of a given class on a given stage
-    public static int count(Stage stage, String className)
+    boolean isRegistered()
+    {
+        return registeredStage != null;
+    }
+
+    // leave the registry of the stage and release the cached animations when removed
+    // a pooled actor keeps its animations and goes back to its pool
+    // returns true if the actor was on a stage
+    @Override
+    public boolean remove()
     {
-        return getList(stage, className).size();
+        if (registeredStage == null)
+            return super.remove();
+
+        if (pool == null)  releaseAnimations();
+        boolean removed = detach();
+        if (pool != null)  pool.giveBack(this);
+        return removed;
+    }
+
+    // leave the stage and its registry, but keep the animations: the actor can attach() again later
+    // (remove(), and a LevelStreamer parking the actors of a chunk far from the camera)
+    boolean detach()
+    {
+        if (registeredStage == null)  return false;
+        registry.remove(this);
+        spatialHash.remove(this);
+        setBatchedMovement(false);
+        registeredStage = null;
+        registry = null;
+        return super.remove();
+    }
+
+    // POOLING: called when the actor goes back to its ActorPool - the state of its previous life is cleared
+    // subclasses with own state override it (and call super.reset())
+    @Override
+    public void reset()
+    {
+        clearActions();
+        getColor().set(Color.WHITE);
+        setScale(1);
+        setRotation(0);
+        setVisible(true);
+        elapsedTime = 0;
+        animationPaused = false;
+        velocityVec.set(0, 0);
+        accelerationVec.set(0, 0);
+        clearPreviousTransform();
+    }
+
+
+
+    // SNAPSHOT OF THE STATE: position, rotation, velocity, animation time and color - subclasses with own state
+    // override both methods (and call super); readState() must read exactly what writeState() has written
+    protected void writeState(FloatArray out)
+    {
+        if (movementSystem != null)  movementSystem.pull(this);
+        Color c = getColor();
+        out.add( getX(), getY(), getRotation() );
+        out.add( velocityVec.x, velocityVec.y, elapsedTime );
+        out.add( c.r, c.g, c.b, c.a );
+    }
+
+    // returns the offset after the state of this actor
+    protected int readState(float[] in, int offset)
+    {
+        setPosition( in[offset], in[offset + 1] );
+        setRotation( in[offset + 2] );
+        velocityVec.set( in[offset + 3], in[offset + 4] );
+        accelerationVec.set(0, 0);
+        elapsedTime = in[offset + 5];
+        getColor().set( in[offset + 6], in[offset + 7], in[offset + 8], in[offset + 9] );
+        clearPreviousTransform();       // a jump: not blended from its current place
+        if (movementSystem != null)  movementSystem.push(this);
+        return offset + 10;
+    }
+
+    void retain()
+    {
+        snapshotCount++;
+    }
+
+    // the actor is back in the game (restored): nothing to release
+    void revive()
+    {
+        releasePending = false;
+    }
+
+    void letGo()
+    {
+        snapshotCount--;
+        if (snapshotCount == 0 && releasePending)
+        {
+            releasePending = false;
+            releaseAnimations();
+        }
     }
 
 
@@ -162,12 +300,17 @@ public class BaseActor extends Group            // Group extends Actor...
     // CAMERA alignment so that viewing area will be completely contained within the game world
 
     public void alignCamera()
+    {
+        if (registry != null)  registry.setCameraTarget(this);
+        alignCamera( this.getX(), this.getY() );
+    }
+
+    private void alignCamera(float x, float y)
     {
         Camera cam = this.getStage().getCamera();       // get camera of stage the actor is in
-        Viewport v = this.getStage().getViewport();
 
         // center camera on actor: shift view with BaseActor
-        cam.position.set( this.getX() + this.getOriginX(), this.getY() + this.getOriginY(), 0 );
+        cam.position.set( x + this.getOriginX(), y + this.getOriginY(), 0 );
 
         // bound camera to layout: keep camera view within game world
         cam.position.x = MathUtils.clamp(cam.position.x,
@@ -178,6 +321,96 @@ public class BaseActor extends Group            // Group extends Actor...
         cam.update();
     }
 
+    // fixed timestep: the camera follows the drawn (interpolated) position of the actor that aligned it last
+    public static void alignCameraToRenderPosition(Stage stage)
+    {
+        BaseActor target = ActorRegistry.forStage(stage).getCameraTarget();
+        if ( target != null && target.getStage() == stage )
+            target.alignCamera( target.getRenderX(), target.getRenderY() );
+    }
+
+
+
+    // VIEW-FRUSTUM CULLING
+    // before drawing the stage: the actors outside the camera view will not be submitted to the batch
+    // (the world is many times bigger than the screen) - called by BaseScreen for the main stage
+    public static void cullToCamera(Stage stage)
+    {
+        ActorRegistry.forStage(stage).beginCulling( stage.getCamera() );
+    }
+
+    // statistics of the last drawn frame of a culled stage
+    public static int getCulledCount(Stage stage)
+    {
+        return ActorRegistry.forStage(stage).getCulledCount();
+    }
+
+    public static int getDrawnCount(Stage stage)
+    {
+        return ActorRegistry.forStage(stage).getDrawnCount();
+    }
+
+    // collidable actors: found by the view query of the SpatialHash in this frame; the others: own bounds tested
+    // only the direct children of the stage are culled (a child actor is drawn relative to its parent)
+    private boolean isOutsideView()
+    {
+        if ( registry == null || !registry.isCulling() || getParent() != getStage().getRoot() )
+            return false;
+        if (inSpatialHash)
+            return visibleFrame != registry.getCullFrame();
+        return !registry.isInView( getBoundsMinX(), getBoundsMinY(), getBoundsMaxX(), getBoundsMaxY() );
+    }
+
+
+
+    // RENDER INTERPOLATION (fixed timestep, see BaseScreen)
+    // the transform of the previous tick is kept; draw() blends it with the current one by renderAlpha
+
+    public static void setRenderAlpha(float alpha)
+    {
+        renderAlpha = alpha;
+    }
+
+    public static void savePreviousTransforms(Stage stage)
+    {
+        Array<BaseActor> actors = ActorRegistry.forStage(stage).getList(BaseActor.class);
+        for (int i = 0; i < actors.size; i++)
+            actors.get(i).savePreviousTransform();
+    }
+
+    public void savePreviousTransform()
+    {
+        previousX = getX();
+        previousY = getY();
+        previousRotation = getRotation();
+        hasPreviousTransform = true;
+    }
+
+    // after a jump (repositioning, reuse) the actor must not be blended from its old place
+    public void clearPreviousTransform()
+    {
+        hasPreviousTransform = false;
+    }
+
+    public float getRenderX()
+    {
+        if ( !hasPreviousTransform || renderAlpha >= 1 )  return getX();
+        return previousX + (getX() - previousX) * renderAlpha;
+    }
+
+    public float getRenderY()
+    {
+        if ( !hasPreviousTransform || renderAlpha >= 1 )  return getY();
+        return previousY + (getY() - previousY) * renderAlpha;
+    }
+
+    public float getRenderRotation()
+    {
+        if ( !hasPreviousTransform || renderAlpha >= 1 )  return getRotation();
+        float delta = ((getRotation() - previousRotation) % 360 + 540) % 360 - 180;   // the shorter way round
+        return previousRotation + delta * renderAlpha;
+    }
+
 
 
     // ANIMATION HANDLING
@@ -186,24 +419,11 @@ public class BaseActor extends Group            // Group extends Actor...
     // The common part for all 3 methods: setAnimation(...)
 
     // Version 1: load from separate files
+    // the textures and the Animation come from the AssetCache: identical file lists share them
     public Animation<TextureRegion> loadAnimationFromFiles( String[] fileNames, float frameDuration, boolean loop )
     {
-        int fileCount = fileNames.length;
-        Array<TextureRegion> textureArray = new Array<TextureRegion>();
-
-        for (int n = 0; n < fileCount; n++)     // load each image, set its filter, add to Array as a TextureRegion class type
-        {
-            String fileName = fileNames[n];
-            Texture texture = new Texture( Gdx.files.internal( fileName ) );
-            texture.setFilter( TextureFilter.Linear, TextureFilter.Linear );
-            textureArray.add( new TextureRegion( texture ) );
-        }
-
-        // create animation with frame duration and image array params, then set play mode to loop or normal acc. to param
-        Animation<TextureRegion> anim = new Animation<TextureRegion> (frameDuration, textureArray);
-
-        if (loop)  anim.setPlayMode(Animation.PlayMode.LOOP);
-        else       anim.setPlayMode(Animation.PlayMode.NORMAL);
+        Animation<TextureRegion> anim = AssetCache.obtainAnimationFromFiles(fileNames, frameDuration, loop);
+        ownAnimation(anim);
 
         if (animation == null)  setAnimation(anim);
 
@@ -214,31 +434,36 @@ public class BaseActor extends Group            // Group extends Actor...
     // additional params: number of rows and cols of images on sheet
     public Animation<TextureRegion> loadAnimationFromSheet(String fileName, int rows, int cols, float frameDuration, boolean loop)
     {
-        Texture texture = new Texture(Gdx.files.internal(fileName), true);
-        texture.setFilter(TextureFilter.Linear, TextureFilter.Linear);
-
-        int frameWidth = texture.getWidth() / cols;         // set width and height of 1 image
-        int frameHeight = texture.getHeight() / rows;
-
-        // split() method cuts sheet into separate images, puts into a 2dim array
-        TextureRegion[][] temp = TextureRegion.split(texture, frameWidth, frameHeight);
-
-        Array<TextureRegion> textureArray = new Array<TextureRegion>();     // put images from 2dim array into Array
-        for (int r = 0; r < rows; r++)
-            for (int c = 0; c < cols; c++)
-                textureArray.add( temp[r][c] );
-
-        // create animation with frame duration and image array params, then set play mode to loop or normal acc. to param
-        Animation<TextureRegion> anim = new Animation<TextureRegion>(frameDuration, textureArray);
-
-        if (loop)  anim.setPlayMode(Animation.PlayMode.LOOP);
-        else       anim.setPlayMode(Animation.PlayMode.NORMAL);
+        Animation<TextureRegion> anim = AssetCache.obtainAnimationFromSheet(fileName, rows, cols, frameDuration, loop);
+        ownAnimation(anim);
 
         if (animation == null)  setAnimation(anim);
 
         return anim;
     }
 
+    // the actor holds one reference of the cached animation, its stage one more (released with the screen)
+    private void ownAnimation(Animation<TextureRegion> anim)
+    {
+        if (ownedAnimations == null)  ownedAnimations = new Array<Animation<TextureRegion>>(false, 2);
+        ownedAnimations.add(anim);
+        if (registry != null)  registry.pin(anim);
+    }
+
+    // give back the cached animations of the actor (in remove(), or when the screen is disposed)
+    void releaseAnimations()
+    {
+        if (snapshotCount > 0)
+        {
+            releasePending = true;          // a snapshot may bring it back
+            return;
+        }
+        if (ownedAnimations == null)  return;
+        for (int i = 0; i < ownedAnimations.size; i++)
+            AssetCache.release( ownedAnimations.get(i) );
+        ownedAnimations.clear();
+    }
+
     // Version 3 for convenience: a special method for game objects that actually do not require an animation, because they have only 1 image
     public Animation<TextureRegion> loadTexture(String fileName)
     {
@@ -281,30 +506,43 @@ public class BaseActor extends Group            // Group extends Actor...
     // hit moving key -> accelerate,  release it -> decelerate
     // velocity is in pixels/sec
 
+    // the public setters sync with the MovementSystem once: pull, change the vectors, push
+    // (the nested calls go through the unsynchronized private versions - a second pull would bring back the old velocity)
     public void setSpeed(float speed)
     {
+        if (movementSystem != null)  movementSystem.pull(this);
         // if length is zero set motion angle acc. to acceleration angle
         if (velocityVec.len() == 0)
         {
             velocityVec.set(speed, 0);
-            setMotionAngle( accelerationVec.angleDeg() );
+            applyMotionAngle( accelerationVec.angleDeg() );
         }
         else
             velocityVec.setLength(speed);
+        if (movementSystem != null)  movementSystem.push(this);
     }
 
     public float getSpeed()
     {
+        if (movementSystem != null)  movementSystem.pull(this);
         return velocityVec.len();
     }
 
     public void setMotionAngle(float angle)
+    {
+        if (movementSystem != null)  movementSystem.pull(this);
+        applyMotionAngle(angle);
+        if (movementSystem != null)  movementSystem.push(this);
+    }
+
+    private void applyMotionAngle(float angle)
     {
         velocityVec.setAngleDeg(angle);
     }
 
     public float getMotionAngle()
     {
+        if (movementSystem != null)  movementSystem.pull(this);
         return velocityVec.angleDeg();
     }
 
@@ -320,7 +558,12 @@ public class BaseActor extends Group            // Group extends Actor...
 
     public void accelerateAtAngle(float angle)      // set angle of acc. in degrees (called by act(dt) upon key press)
     {
-        accelerationVec.add( new Vector2(acceleration, 0).setAngleDeg(angle) );     // add - this makes it possible to give 2 directions parallel
+        if (movementSystem != null)  movementSystem.pull(this);
+        // add - this makes it possible to give 2 directions parallel
+        // (the same math as Vector2(acceleration, 0).setAngleDeg(angle), without a new Vector2 on every key-held frame)
+        float radians = angle * MathUtils.degreesToRadians;
+        accelerationVec.add( acceleration * (float) Math.cos(radians), acceleration * (float) Math.sin(radians) );
+        if (movementSystem != null)  movementSystem.push(this);
     }
 
     public void accelerateForward()    // accelerates an object in the direction it is currently facing
@@ -330,12 +573,46 @@ public class BaseActor extends Group            // Group extends Actor...
 
     public void setMaxSpeed(float ms)
     {
+        if (movementSystem != null)  movementSystem.pull(this);
         maxSpeed = ms;
+        if (movementSystem != null)  movementSystem.push(this);
     }
 
     public void setDeceleration(float dec)
     {
+        if (movementSystem != null)  movementSystem.pull(this);
         deceleration = dec;
+        if (movementSystem != null)  movementSystem.push(this);
+    }
+
+
+    // BATCHED MOVEMENT: for masses of moving actors - the MovementSystem of the stage integrates all of them in one loop
+    // after the stage has acted, applyPhysics() of the actor does nothing from then on (see MovementSystem)
+    public void setBatchedMovement(boolean batched)
+    {
+        if ( batched == (movementSystem != null) )  return;
+        if (batched)
+        {
+            if (registry == null)  return;
+            movementSystem = registry.getMovementSystem();
+            movementSystem.add(this);
+        }
+        else
+        {
+            movementSystem.remove(this);
+            movementSystem = null;
+        }
+    }
+
+    public boolean isBatchedMovement()
+    {
+        return movementSystem != null;
+    }
+
+    // called by BaseScreen after the stage has acted
+    public static void applyBatchedPhysics(Stage stage, float dt)
+    {
+        ActorRegistry.forStage(stage).getMovementSystem().update(dt);
     }
 
 
@@ -343,6 +620,8 @@ public class BaseActor extends Group            // Group extends Actor...
     // acceleration -> velocity -> movement  - dt = time elapsed since last rendering
     public void applyPhysics(float dt)
     {
+        if (movementSystem != null)  return;        // moved by the MovementSystem of the stage
+
         // apply acceleration to velocity
         velocityVec.add( accelerationVec.x * dt, accelerationVec.y * dt );
         float speed = getSpeed();
@@ -379,65 +658,228 @@ public class BaseActor extends Group            // Group extends Actor...
             vertices[2*i+1] = h/2 * MathUtils.sin(angle) + h/2;
         }
         boundaryPolygon = new Polygon(vertices);        // create Polygon from array
+        boundaryValid = false;                          // world vertices are computed at the first query
+
+        if (spatialHash != null && registeredStage != null)     // from now on the actor takes part in collision queries
+        {
+            if (inSpatialHash)  spatialHash.update(this);
+            else                spatialHash.insert(this);
+        }
     }
 
     // give boundary polygon but after adjusting it according to the Actor object’s current parameters
+    // the world-space vertices and the bounding rectangle are recomputed only when the transform has changed
     public Polygon getBoundaryPolygon()
     {
-        boundaryPolygon.setPosition( getX(), getY() );
-        boundaryPolygon.setOrigin( getOriginX(), getOriginY() );
-        boundaryPolygon.setRotation ( getRotation() );
-        boundaryPolygon.setScale( getScaleX(), getScaleY() );
+        if ( refreshBoundary() )  boundaryRecomputes++;
+        else                      boundaryRecomputeSkips++;
         return boundaryPolygon;
     }
 
+    // bring the cached world polygon and rectangle up to date - true if they had to be recomputed
+    // touches only this actor (no shared counters), so different actors may be refreshed on different threads
+    boolean refreshBoundary()
+    {
+        if ( boundaryValid && (boundaryImmutable || !boundaryTransformChanged()) )
+            return false;
+
+        // copy only the changed values: every Polygon setter marks the polygon dirty
+        if (boundaryPolygon.getX() != getX() || boundaryPolygon.getY() != getY())
+            boundaryPolygon.setPosition( getX(), getY() );
+        if (boundaryPolygon.getOriginX() != getOriginX() || boundaryPolygon.getOriginY() != getOriginY())
+            boundaryPolygon.setOrigin( getOriginX(), getOriginY() );
+        if (boundaryPolygon.getRotation() != getRotation())
+            boundaryPolygon.setRotation( getRotation() );
+        if (boundaryPolygon.getScaleX() != getScaleX() || boundaryPolygon.getScaleY() != getScaleY())
+            boundaryPolygon.setScale( getScaleX(), getScaleY() );
+
+        // world vertices -> bounding rectangle
+        float[] v = boundaryPolygon.getTransformedVertices();
+        float minX = v[0], maxX = v[0], minY = v[1], maxY = v[1];
+        for (int i = 2; i < v.length; i += 2)
+        {
+            minX = Math.min(minX, v[i]);
+            maxX = Math.max(maxX, v[i]);
+            minY = Math.min(minY, v[i+1]);
+            maxY = Math.max(maxY, v[i+1]);
+        }
+        boundaryRectangle.set( minX, minY, maxX - minX, maxY - minY );
+
+        boundaryValid = true;
+        return true;
+    }
+
+    // the axis aligned bounding rectangle of the boundary polygon (cached together with the polygon)
+    public Rectangle getBoundaryRectangle()
+    {
+        getBoundaryPolygon();
+        return boundaryRectangle;
+    }
+
+    // scale and origin have no change notification in Actor, they are compared with the values in the polygon
+    private boolean boundaryTransformChanged()
+    {
+        return boundaryPolygon.getScaleX() != getScaleX() || boundaryPolygon.getScaleY() != getScaleY()
+                || boundaryPolygon.getOriginX() != getOriginX() || boundaryPolygon.getOriginY() != getOriginY();
+    }
+
+    // static obstacles (Rock, Sign) never move: their boundary is computed once and then always reused
+    // (calling this again or setBoundaryPolygon computes it once more, e.g. after a repositioning)
+    public void setBoundaryImmutable(boolean immutable)
+    {
+        boundaryImmutable = immutable;
+        boundaryValid = false;
+    }
+
+    public boolean isBoundaryImmutable()
+    {
+        return boundaryImmutable;
+    }
+
+    // instrumentation: how many times the boundary was recomputed and how many times the cache was enough
+    public static long getBoundaryRecomputeCount()
+    {
+        return boundaryRecomputes;
+    }
+
+    public static long getBoundaryRecomputeSkipCount()
+    {
+        return boundaryRecomputeSkips;
+    }
+
+    // the counts of a refresh done outside getBoundaryPolygon() (ContactFinder)
+    static void countBoundaryRefreshes(long recomputed, long skipped)
+    {
+        boundaryRecomputes += recomputed;
+        boundaryRecomputeSkips += skipped;
+    }
+
+    public static void resetBoundaryCounters()
+    {
+        boundaryRecomputes = 0;
+        boundaryRecomputeSkips = 0;
+    }
+
+    // BROADPHASE: bounds used by the SpatialHash
+    // a square around the origin that contains the actor at any rotation - so turning never moves it between cells
+
+    float getBoundsRadius()
+    {
+        float dx = Math.max( getOriginX(), getWidth() - getOriginX() );
+        float dy = Math.max( getOriginY(), getHeight() - getOriginY() );
+        float scale = Math.max( Math.abs(getScaleX()), Math.abs(getScaleY()) );
+        return (float) Math.sqrt(dx * dx + dy * dy) * scale;
+    }
+
+    float getBoundsMinX()  { return getX() + getOriginX() - getBoundsRadius(); }
+    float getBoundsMinY()  { return getY() + getOriginY() - getBoundsRadius(); }
+    float getBoundsMaxX()  { return getX() + getOriginX() + getBoundsRadius(); }
+    float getBoundsMaxY()  { return getY() + getOriginY() + getBoundsRadius(); }
+
+    // collidable actors of a given type around this one (within "margin" pixels) - the candidates of the narrow tests
+    // results are added to "out" after clearing it, so the same Array can be reused every frame
+    public <T extends BaseActor> Array<T> getNearby(Class<T> type, float margin, Array<T> out)
+    {
+        out.clear();
+        if (spatialHash == null)  return out;
+        return spatialHash.query( getBoundsMinX() - margin, getBoundsMinY() - margin,
+                getBoundsMaxX() + margin, getBoundsMaxY() + margin, type, this, out );
+    }
+
+    // keep the broadphase and the boundary cache up to date: Actor calls these after setPosition/moveBy, setSize, setRotation
+    @Override
+    protected void positionChanged()
+    {
+        super.positionChanged();
+        if (!boundaryImmutable)  boundaryValid = false;
+        if (inSpatialHash)  spatialHash.update(this);
+        if (movementSystem != null)  movementSystem.pushPosition(this);
+    }
+
+    @Override
+    protected void sizeChanged()
+    {
+        super.sizeChanged();
+        if (!boundaryImmutable)  boundaryValid = false;
+        if (inSpatialHash)  spatialHash.update(this);
+    }
+
+    @Override
+    protected void rotationChanged()
+    {
+        super.rotationChanged();
+        if (!boundaryImmutable)  boundaryValid = false;
+    }
+
+    // NARROW TESTS
     // check overlapping - first only with rectangle to spare time
     public boolean overlaps(BaseActor other)
     {
-        Polygon poly1 = this.getBoundaryPolygon();
-        Polygon poly2 = other.getBoundaryPolygon();
         // initial test to improve performance
-        if ( !poly1.getBoundingRectangle().overlaps(poly2.getBoundingRectangle()) )
+        if ( !this.getBoundaryRectangle().overlaps(other.getBoundaryRectangle()) )
             return false;
-        return Intersector.overlapConvexPolygons( poly1, poly2 );   // static method for checking overlap between polygons
+        return Intersector.overlapConvexPolygons( boundaryPolygon, other.boundaryPolygon );   // static method for checking overlap between polygons
+    }
+
+    // the same test on boundaries already refreshed (ContactFinder): reads only, safe on several threads at once
+    boolean overlapsRefreshed(BaseActor other)
+    {
+        if ( !boundaryRectangle.overlaps(other.boundaryRectangle) )
+            return false;
+        return Intersector.overlapConvexPolygons( boundaryPolygon, other.boundaryPolygon );
+    }
+
+    boolean hasBoundary()
+    {
+        return boundaryPolygon != null;
     }
 
     // Special method in order to avoid overlap with solid obstacles:
     // it calculates the minimal distance the character needs to be moved so that there will be no overlap
     // then moves character with this vector
-    // return value: null if no overlap, otherwise the normal vector of direction
-    public Vector2 preventOverlap(BaseActor other)
+    // return value: false if no overlap - otherwise true, and "mtv" holds the direction (normal) and the depth
+    // "mtv" is supplied by the caller, so nothing is allocated per call
+    public boolean preventOverlap(BaseActor other, MinimumTranslationVector mtv)
     {
-        Polygon poly1 = this.getBoundaryPolygon();
-        Polygon poly2 = other.getBoundaryPolygon();
-
         // initial test to improve performance
-        if ( !poly1.getBoundingRectangle().overlaps(poly2.getBoundingRectangle()) )
-            return null;
+        if ( !this.getBoundaryRectangle().overlaps(other.getBoundaryRectangle()) )
+            return false;
 
-        MinimumTranslationVector mtv = new MinimumTranslationVector();
         // mtv = data output: the vector of minimal movement - .normal is a normal vector, .depth is the distance
-        boolean polygonOverlap = Intersector.overlapConvexPolygons( poly1, poly2, mtv );
+        boolean polygonOverlap = Intersector.overlapConvexPolygons( boundaryPolygon, other.boundaryPolygon, mtv );
 
-        if ( !polygonOverlap )  return null;
+        if ( !polygonOverlap )  return false;
 
         // The main point: if there is overlap it moves character by the min. vector
         this.moveBy( mtv.normal.x * mtv.depth, mtv.normal.y * mtv.depth );
 
-        return mtv.normal;                  // returns the direction (normal vector)
+        return true;
+    }
+
+    // Convenience version with the own, reused result of the actor
+    // return value: null if no overlap, otherwise the normal vector of direction - valid until the next call
+    public Vector2 preventOverlap(BaseActor other)
+    {
+        if ( !preventOverlap(other, overlapMtv) )  return null;
+        return overlapMtv.normal;           // returns the direction (normal vector)
     }
 
     // To test if other actor is within a given distance: by scaling the boundaryPolygon
+    // the scaled copy is a shared scratch polygon, so the cached boundary of this actor stays intact
     public boolean isWithinDistance(float distance, BaseActor other)
     {
-        Polygon poly1 = this.getBoundaryPolygon();
+        Polygon poly1 = distancePolygon;
+        poly1.setVertices( boundaryPolygon.getVertices() );
+        poly1.setPosition( getX(), getY() );
+        poly1.setOrigin( getOriginX(), getOriginY() );
+        poly1.setRotation( getRotation() );
         float scaleX = (this.getWidth() + 2 * distance) / this.getWidth();
         float scaleY = (this.getHeight() + 2 * distance) / this.getHeight();
         poly1.setScale(scaleX, scaleY);
         Polygon poly2 = other.getBoundaryPolygon();
 
         // initial test to improve performance
-        if ( !poly1.getBoundingRectangle().overlaps(poly2.getBoundingRectangle()) )
+        if ( !poly1.getBoundingRectangle().overlaps(other.getBoundaryRectangle()) )
             return false;
         return Intersector.overlapConvexPolygons( poly1, poly2 );
     }
@@ -467,16 +909,28 @@ public class BaseActor extends Group            // Group extends Actor...
     @Override
     public void draw(Batch batch, float parentAlpha)
     {
+        // skip the actors far outside the camera view (with their children)
+        if ( isOutsideView() )
+        {
+            registry.countCulled();
+            return;
+        }
+
         // apply color tint effect
         Color c = getColor();
         batch.setColor(c.r, c.g, c.b, c.a);
         if ( animation != null && isVisible() )
-            batch.draw( animation.getKeyFrame(elapsedTime), getX(), getY(), getOriginX(), getOriginY(),
-                    getWidth(), getHeight(), getScaleX(), getScaleY(), getRotation() );
+        {
+            batch.draw( animation.getKeyFrame(elapsedTime), getRenderX(), getRenderY(), getOriginX(), getOriginY(),
+                    getWidth(), getHeight(), getScaleX(), getScaleY(), getRenderRotation() );
+            if (registry != null)  registry.countDrawn();      // statistics: only an image submitted to the batch counts
+        }
 
         // so that the actors attached to the group render after (and therefore, appear on top of) the image
         // corresponding to the group object itself - this command is now the last to do:
-        super.draw( batch, parentAlpha );
+        // (only with children: Group.draw sets the transform matrix of the batch, and that flushes the batch)
+        if ( hasChildren() )
+            super.draw( batch, parentAlpha );
     }
 
 }
\ No newline at end of file
@@ -2,23 +2,23 @@ package com.starfishcoll;
 
 import com.badlogic.gdx.Game;
 import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.InputMultiplexer;    // class to handle discrete user input: a central dispatcher
-import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.TimeUtils;
 import com.badlogic.gdx.scenes.scene2d.ui.Label.LabelStyle;
 
 import com.badlogic.gdx.scenes.scene2d.ui.TextButton.TextButtonStyle;
 import com.badlogic.gdx.graphics.g2d.NinePatch;
 import com.badlogic.gdx.scenes.scene2d.utils.NinePatchDrawable;
-import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.Texture.TextureFilter;
-import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeFontGenerator;
-import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeFontGenerator.FreeTypeFontParameter;
 
 /*  For Freetype - plus dependencies should be written into build.gradle:
     Core Dependency:   compile "com.badlogicgames.gdx:gdx-freetype:$gdxVersion"
     Desktop Dependency:  compile "com.badlogicgames.gdx:gdx-freetype-platform:$gdxVersion:natives-desktop"
+    (the same natives for the headless module - the FontService generates the font there as well)
     Then refresh under Gradle...
  */
 
@@ -28,6 +28,8 @@ import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeFontGenerator.FreeTypeFont
  * Launcher class so that the Screen-derived classes can easily access and switch the currently active screen.
  * Another task is handling discrete user input -
  * for this set the InputMultiplexer as main InputProcessor, to which BaseScreen will add the stages.
+ * Screen registry: the screens registered by name are built once and shown again on every switch to them
+ * (a restart is BaseScreen.reset(), not a new screen); they are disposed when evicted or when the game ends.
  * 07/01/2022 - last: 15/01/2022
  */
 
@@ -39,6 +41,21 @@ public abstract class BaseGame extends Game
 
     public static TextButtonStyle textButtonStyle;      // a central style definition for text buttons
 
+    private static boolean loadingScreenEnabled = true;    // show a LoadingScreen while the next screen's assets load
+    private static long switchStartTime;
+    private static float lastScreenSwitchTime;
+
+    // the screen registry
+    private static ObjectMap<String, ScreenFactory> screenFactories = new ObjectMap<String, ScreenFactory>();
+    private static ObjectMap<String, BaseScreen> screens = new ObjectMap<String, BaseScreen>();
+    private static Array<Screen> pendingDisposal = new Array<Screen>();    // disposed at the end of the frame
+
+    // makes a screen of the registry when it is first needed
+    public interface ScreenFactory
+    {
+        BaseScreen create();
+    }
+
 
     public BaseGame()
     {
@@ -49,39 +66,161 @@ public abstract class BaseGame extends Game
     public void create()
     {
         // prepare for multiple classes/stages to receive discrete input
-        InputMultiplexer im = new InputMultiplexer();
-        Gdx.input.setInputProcessor( im );
+        // (a GameInput.Multiplexer: the input can be recorded / played back tick by tick)
+        GameInput.install();
+        if ( GameInput.isRecording() || GameInput.isReplaying() )
+        {
+            loadingScreenEnabled = false;       // the loading screen would tick for a different time on every run
+            if ( !BaseScreen.isFixedTimestep() )  BaseScreen.setFixedTimestep(60, 5);
+        }
 
 
         // initialize label style
+        // (freetype version: OpenSans generated once by the FontService, then loaded from its disk cache)
         labelStyle = new LabelStyle();
-        labelStyle.font = new BitmapFont();
-        // png + fnt version
-        labelStyle.font = new BitmapFont( Gdx.files.internal("cooper.fnt") );
-
-        /*// freetype version
-        FreeTypeFontGenerator fontGenerator = new FreeTypeFontGenerator(Gdx.files.internal("OpenSans.ttf"));
-        FreeTypeFontParameter fontParameters = new FreeTypeFontParameter();
-        fontParameters.size = 48;
-        fontParameters.color = Color.WHITE;
-        fontParameters.borderWidth = 2;
-        fontParameters.borderColor = Color.BLACK;
-        fontParameters.borderStraight = true;
-        fontParameters.minFilter = TextureFilter.Linear;
-        fontParameters.magFilter = TextureFilter.Linear;
-        labelStyle.font = fontGenerator.generateFont(fontParameters);*/
+        labelStyle.font = FontService.getFont(48);
 
         // initialize text button style
         textButtonStyle = new TextButtonStyle();
-        Texture buttonTex = new Texture( Gdx.files.internal("button.png") );
-        NinePatch buttonPatch = new NinePatch(buttonTex, 24,24,24,24);  // image with borders for fine alignment
+        TextureRegion buttonRegion = AssetCache.obtainRegion("button.png");     // kept for the whole game
+        NinePatch buttonPatch = new NinePatch(buttonRegion, 24,24,24,24);  // image with borders for fine alignment
         textButtonStyle.up = new NinePatchDrawable( buttonPatch );      // a NinePatch that implements Drawable
         textButtonStyle.font = labelStyle.font;
         textButtonStyle.fontColor = Color.GRAY;
     }
 
+    @Override
+    public void dispose()
+    {
+        Screen current = getScreen();
+        super.dispose();            // (hides the current screen)
+        if ( current != null && !screens.containsValue(current, true) && !pendingDisposal.contains(current, true) )
+            current.dispose();      // a screen made by new
+        for (BaseScreen s : screens.values())
+            s.dispose();
+        screens.clear();
+        disposePendingScreens(null);
+        GameInput.shutdown();       // a recording asked by the launcher is saved
+        FontService.dispose();
+        AssetCache.releaseRegion("button.png");     // the image of the text buttons (create)
+    }
+
+    @Override
+    public void render()
+    {
+        GameInput.playEvents();     // played back: the events before the frame (e.g. a screen switch), as they came live
+        super.render();
+        // the screens left in this frame are disposed now: not inside their own render() (e.g. a switch from update)
+        disposePendingScreens( getScreen() );
+    }
+
+    private static void disposePendingScreens(Screen keep)
+    {
+        for (int i = pendingDisposal.size - 1; i >= 0; i--)
+            if (pendingDisposal.get(i) != keep)
+                pendingDisposal.removeIndex(i).dispose();
+    }
+
+    // switch screens: the assets of the new screen are loaded first (in the background, if the loading screen is on)
     public static void setActiveScreen(BaseScreen s)
     {
+        switchStartTime = TimeUtils.nanoTime();
+        s.queueAssets();            // the manifest of the screen
+        if ( loadingScreenEnabled && !s.isInitialized() && !AssetCache.isLoadingFinished() )
+            showScreen( new LoadingScreen(s) );
+        else
+        {
+            AssetCache.finishLoading();
+            completeScreenSwitch(s);
+        }
+    }
+
+    // switch to a screen of the registry (made by its factory at the first switch, shown as it was left after)
+    public static void setActiveScreen(String name)
+    {
+        setActiveScreen( getScreen(name) );
+    }
+
+    // show a screen of the registry from its initial state (e.g. restart a level)
+    public static void restartScreen(String name)
+    {
+        BaseScreen s = getScreen(name);
+        s.reset();
+        if (game.getScreen() != s)  setActiveScreen(s);
+    }
+
+    // the assets are resident: show the screen (the first show() builds it)
+    static void completeScreenSwitch(BaseScreen s)
+    {
+        showScreen(s);
+        AssetCache.releaseUnclaimedPreloads();
+
+        lastScreenSwitchTime = TimeUtils.timeSinceNanos(switchStartTime) / 1000000000f;
+        Gdx.app.debug("BaseGame", "screen switch to " + s.getClass().getSimpleName()
+                + ": " + (int) (lastScreenSwitchTime * 1000) + " ms");
+    }
+
+    private static void showScreen(Screen s)
+    {
+        Screen previous = game.getScreen();
         game.setScreen(s);      // create a reference to the currently active screen
+        // the screen left is disposed at the end of the frame if nobody can switch back to it:
+        // a loading screen, a screen made by new (not from the registry)
+        if ( previous != null && previous != s && !screens.containsValue(previous, true)
+                && !pendingDisposal.contains(previous, true) )
+            pendingDisposal.add(previous);
+        pendingDisposal.removeValue(s, true);       // (an evicted screen shown again is kept)
+    }
+
+    // the screen is the shown one (or there is no game: a screen driven directly, e.g. by a benchmark)
+    static boolean isActiveScreen(Screen s)
+    {
+        return game == null || game.getScreen() == s;
+    }
+
+    // SCREEN REGISTRY
+
+    public static void registerScreen(String name, ScreenFactory factory)
+    {
+        screenFactories.put(name, factory);
+    }
+
+    // the screen of the registry (made now if it is not made yet or it was evicted)
+    public static BaseScreen getScreen(String name)
+    {
+        BaseScreen s = screens.get(name);
+        if (s == null)
+        {
+            ScreenFactory factory = screenFactories.get(name);
+            if (factory == null)
+                throw new IllegalArgumentException("no screen registered as " + name);
+            s = factory.create();
+            screens.put(name, s);
+        }
+        return s;
+    }
+
+    public static boolean isScreenBuilt(String name)
+    {
+        return screens.containsKey(name);
+    }
+
+    // the screen is dropped from the registry (the next switch makes it anew) and disposed at the end of the frame
+    // (if it is still shown then: at the end of the frame in which another screen is switched to)
+    public static void evictScreen(String name)
+    {
+        BaseScreen s = screens.remove(name);
+        if (s != null)  pendingDisposal.add(s);
+    }
+
+    public static void setLoadingScreenEnabled(boolean enabled)
+    {
+        loadingScreenEnabled = enabled;
+    }
+
+    // metric: seconds from setActiveScreen() until the new screen was shown (loading and initialize() included)
+    public static float getLastScreenSwitchTime()
+    {
+        return lastScreenSwitchTime;
     }
 }
@@ -1,12 +1,18 @@
 package com.starfishcoll;
 
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input.Keys;
 import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.InputProcessor;         // interface to handle discrete user input
 import com.badlogic.gdx.InputMultiplexer;    // class to handle discrete user input: a central dispatcher (in BaseGame)
+import com.badlogic.gdx.scenes.scene2d.ui.Label;
 import com.badlogic.gdx.scenes.scene2d.ui.Table;   // for effective layout management - subclass of Actor
+import com.badlogic.gdx.utils.Align;
+import com.badlogic.gdx.utils.Array;
 
 
 /**
@@ -26,9 +32,21 @@ public abstract class BaseScreen implements Screen, InputProcessor
     protected Stage uiStage;        // user interface stage (with fix camera)
     protected Table uiTable;        // for effective layout management
 
+    private boolean initialized;    // initialize() has run
+    private boolean resetRequested; // initialize() runs again before the next frame
+    private boolean disposed;
+
+    private static float tickTime = 0;      // length of a fixed simulation step in seconds, 0: variable step
+    private static int maxSubsteps = 5;     // max. number of fixed steps in one frame
+    private float accumulator;              // frame time not simulated yet (fixed step)
+    private Array<String> screenImages;     // images obtained from the AssetCache by the screen itself (e.g. buttons)
+    private Label profilerLabel;            // FrameProfiler overlay, made when it is first switched on
+
 
     public BaseScreen()
     {
+        screenImages = new Array<String>();
+
         mainStage = new Stage();
         uiStage = new Stage();
 
@@ -36,26 +54,204 @@ public abstract class BaseScreen implements Screen, InputProcessor
         uiTable.setFillParent(true);    // in order to be fitted to Stage (which does not handle the size of its children)
         uiStage.addActor(uiTable);
 
-        initialize();               // unique: Actors def. + adding to Stage object
+        initialized = false;        // initialize() runs when the screen is shown first (after its assets are loaded)
+    }
+
+    public abstract void initialize();    // must be overridden in subclass!  unique: Actors def. + adding to Stage object
+
+    // the asset manifest of the screen: queue the files initialize() will load (AssetCache.queueTexture...)
+    // they are decoded in the background while a LoadingScreen is shown - override it in subclasses if needed
+    public void queueAssets() { }
+
+    public boolean isInitialized()
+    {
+        return initialized;
+    }
+
+    // for tools outside the package (headless runner, benchmarks)
+    public Stage getMainStage()
+    {
+        return mainStage;
+    }
+
+    public Stage getUIStage()
+    {
+        return uiStage;
+    }
+
+    // an image for widgets of the screen (not actors) - shared through the AssetCache, released in dispose()
+    protected TextureRegion loadRegion(String fileName)
+    {
+        screenImages.add(fileName);
+        return AssetCache.obtainRegion(fileName);
+    }
+
+    // RESET
+    // the screen is built again on its own stages (a level restart): the actors and widgets of initialize() are
+    // made anew, but the stages, their batches and the cached assets stay - nothing is decoded or allocated on the GPU
+    // it happens at the start of the next frame, not inside the input event (e.g. a button click) that asked for it
+
+    public void reset()
+    {
+        if (initialized)  resetRequested = true;
+    }
+
+    // the old actors keep their assets until the new ones have obtained them from the AssetCache
+    protected void rebuild()
+    {
+        ActorRegistry oldMainRegistry = ActorRegistry.detach(mainStage);
+        ActorRegistry oldUIRegistry = ActorRegistry.detach(uiStage);
+        Array<String> oldImages = screenImages;
+        screenImages = new Array<String>();
+
+        mainStage.clear();
+        uiStage.clear();
+        uiTable.reset();
+        uiTable.setFillParent(true);
+        uiStage.addActor(uiTable);
+        profilerLabel = null;
+        accumulator = 0;
+
+        initialize();
+
+        if (oldMainRegistry != null)  oldMainRegistry.releaseAssets();
+        if (oldUIRegistry != null)  oldUIRegistry.releaseAssets();
+        for (int i = 0; i < oldImages.size; i++)
+            AssetCache.releaseRegion( oldImages.get(i) );
+    }
+
+    // SIMULATION SPEED
+    // variable step (default): the stages act with the raw frame delta
+    // fixed step: the simulation runs in ticks of the same length, independently of the frame rate
+    // (at most maxSubsteps ticks per frame - the rest of a long frame is dropped), the actors are drawn
+    // interpolated between their last two ticks; the tick rate may also be lower than the frame rate
+
+    public static void setFixedTimestep(float ticksPerSecond, int maxSubstepsPerFrame)
+    {
+        tickTime = 1 / ticksPerSecond;
+        maxSubsteps = maxSubstepsPerFrame;
+    }
+
+    public static void setVariableTimestep()
+    {
+        tickTime = 0;
     }
 
-    public abstract void initialize();    // must be overridden in subclass!
+    public static boolean isFixedTimestep()
+    {
+        return tickTime > 0;
+    }
 
     // RENDER
     @Override
     public void render(float dt)        // time elapsed since last rendering is here a received parameter
     {
-        // act method
-        mainStage.act(dt);      // user input query for every Actor of Stage, actions management
-        uiStage.act(dt);
-        // defined by user
-        update(dt);             // unique: upon user input update every Actor
+        if ( Gdx.input.isKeyJustPressed(Keys.F3) )      // the profiler overlay on / off
+            FrameProfiler.setOverlayEnabled( !FrameProfiler.isOverlayEnabled() );
+        FrameProfiler.beginFrame();
+        if (resetRequested)
+        {
+            resetRequested = false;
+            rebuild();
+        }
+
+        if ( isFixedTimestep() )
+        {
+            accumulator += dt;
+            int steps = 0;
+            while (accumulator >= tickTime && steps < maxSubsteps)
+            {
+                GameInput.playEvents();         // played back: the events recorded before this tick may switch screens
+                if ( !BaseGame.isActiveScreen(this) )  break;
+                BaseActor.savePreviousTransforms(mainStage);     // the starting point of the interpolation
+                BaseActor.savePreviousTransforms(uiStage);
+                tick(tickTime);
+                accumulator -= tickTime;
+                steps++;
+                if ( !BaseGame.isActiveScreen(this) )  break;      // update() switched screens: the next one goes on
+            }
+            if (accumulator >= tickTime)            // spiral of death protection: drop the backlog
+                accumulator %= tickTime;
+            BaseActor.setRenderAlpha( accumulator / tickTime );
+            BaseActor.alignCameraToRenderPosition(mainStage);
+        }
+        else
+        {
+            tick(dt);
+            BaseActor.setRenderAlpha(1);
+        }
+        updateProfilerOverlay();
+
         // clear the screen
+        FrameProfiler.begin(FrameProfiler.CLEAR);
         Gdx.gl.glClearColor(0,0,0,1);
         Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+        FrameProfiler.end(FrameProfiler.CLEAR);
         // draw the graphics
+        FrameProfiler.begin(FrameProfiler.MAIN_DRAW);
+        BaseActor.cullToCamera(mainStage);      // only the actors in the view of the camera are drawn
         mainStage.draw();       // draw every Actor of Stage
+        FrameProfiler.end(FrameProfiler.MAIN_DRAW);
+        FrameProfiler.countRenderCalls( mainStage.getBatch() );
+        FrameProfiler.begin(FrameProfiler.UI_DRAW);
         uiStage.draw();
+        FrameProfiler.end(FrameProfiler.UI_DRAW);
+        FrameProfiler.countRenderCalls( uiStage.getBatch() );
+
+        FrameProfiler.endFrame(mainStage);
+    }
+
+    // one step of the simulation (the act/update part of the rendering)
+    public void tick(float dt)
+    {
+        GameInput.beginTick();  // the keys held in this tick (and the events recorded before it, when played back)
+        beforeAct();
+        FrameProfiler.countTick();
+        // act method
+        FrameProfiler.begin(FrameProfiler.MAIN_ACT);
+        mainStage.act(dt);      // user input query for every Actor of Stage, actions management
+        FrameProfiler.end(FrameProfiler.MAIN_ACT);
+        FrameProfiler.begin(FrameProfiler.UI_ACT);
+        uiStage.act(dt);
+        FrameProfiler.end(FrameProfiler.UI_ACT);
+        FrameProfiler.begin(FrameProfiler.PHYSICS);
+        BaseActor.applyBatchedPhysics(mainStage, dt);     // the actors with batched movement move now
+        FrameProfiler.end(FrameProfiler.PHYSICS);
+        // defined by user
+        FrameProfiler.begin(FrameProfiler.UPDATE);
+        update(dt);             // unique: upon user input update every Actor
+        FrameProfiler.end(FrameProfiler.UPDATE);
+    }
+
+    // the input of the tick is in (also when played back): what an input event has asked for is done here,
+    // before the stages act - override it in subclasses if needed
+    protected void beforeAct() { }
+
+    // the rolling p50 / p99 of the FrameProfiler in the top left corner of the uiStage (F3)
+    private void updateProfilerOverlay()
+    {
+        if ( !FrameProfiler.isOverlayEnabled() )
+        {
+            if (profilerLabel != null)  profilerLabel.setVisible(false);
+            return;
+        }
+        if (profilerLabel == null)
+        {
+            profilerLabel = new Label("", BaseGame.labelStyle);
+            profilerLabel.setFontScale(0.3f);
+            profilerLabel.setColor(Color.YELLOW);
+            profilerLabel.setAlignment(Align.topLeft);
+            uiStage.addActor(profilerLabel);
+        }
+        profilerLabel.setVisible(true);
+        profilerLabel.toFront();
+        CharSequence text = FrameProfiler.overlayText();
+        if (text != null)
+        {
+            profilerLabel.setText(text);
+            profilerLabel.pack();
+            profilerLabel.setPosition(10, uiStage.getHeight() - profilerLabel.getHeight() - 10);
+        }
     }
 
     public abstract void update(float dt);   // must be overridden in subclass!
@@ -66,12 +262,29 @@ public abstract class BaseScreen implements Screen, InputProcessor
     public void resize(int width, int height) { }
     public void pause() { }
     public void resume() { }
-    public void dispose() { mainStage.dispose(); uiStage.dispose(); }
+    public void dispose()
+    {
+        if (disposed)  return;      // (a screen may be evicted from the BaseGame registry and the game ends after)
+        disposed = true;
+        ActorRegistry.release(mainStage);       // forget the typed actor lists of the stages, release their assets
+        ActorRegistry.release(uiStage);
+        for (int i = 0; i < screenImages.size; i++)
+            AssetCache.releaseRegion( screenImages.get(i) );
+        screenImages.clear();
+        mainStage.dispose();
+        uiStage.dispose();
+    }
 
     // both of the Stage objects and the BaseScreen class itself should be added to the game’s central user input dispatcher:
-    // InputMultiplexer when this screen is displayed...
+    // InputMultiplexer when this screen is displayed... (and at the first showing the screen builds its actors)
     public void show()
     {
+        if (!initialized)
+        {
+            initialize();
+            initialized = true;
+        }
+
         InputMultiplexer im = (InputMultiplexer) Gdx.input.getInputProcessor();     // returns the currently set InputProcessor (... in BaseGame)
         im.addProcessor(this);      // delegate it and the stages to the event controller - chain InputProcessors (an event will run through each of them in order...)
         im.addProcessor(uiStage);
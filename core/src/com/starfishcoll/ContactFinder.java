@@ -0,0 +1,253 @@
+package com.starfishcoll;
+
+import java.util.concurrent.RecursiveAction;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongArray;
+
+/**
+ * Part of Game FW   implemented during creating Starfish Collector game
+ *   Narrow phase for many moving actors at once: which of them overlap an actor of a given type
+ *
+ *        find() only collects the overlapping (mover, target) pairs - it changes nothing in the game.
+ *        The caller resolves them afterwards on its own thread (preventOverlap, collect...), in the order of the list:
+ *        by the index of the mover, then by the index of the target in its registry list.
+ *          1. the boundary caches of the movers and of the targets are refreshed (they are only read from then on)
+ *          2. the SpatialHash is asked around the actors of the smaller group (e.g. around 100 rocks instead of
+ *             around 5000 fish); these actors are cut into horizontal strips of the world, each strip is tested
+ *             by its own task (parallel with ParallelPhysics enabled, otherwise one after another)
+ *          3. the pairs of the strips are sorted by (mover, target) index - the same list whatever the number
+ *             of threads and whichever group was asked around
+ */
+
+public class ContactFinder<T extends BaseActor>
+{
+    private static int lastStamp = 0;       // marks the movers and targets of the current find()
+
+    private Class<T> targetType;
+
+    private int stamp;
+    private Array<? extends BaseActor> movers;
+    private Array<T> targets;
+    private boolean aroundTargets;          // the hash is asked around the targets (fewer than the movers)
+    private SpatialHash spatialHash;
+    private Array<Strip<T>> strips;         // reused every tick
+    private LongArray pairKeys;             // mover index << 32 | target index - sorted
+    private IntArray pairMovers;            // the result: mover index + target of every pair
+    private Array<T> pairTargets;
+
+    public ContactFinder(Class<T> targetType)
+    {
+        this.targetType = targetType;
+        strips = new Array<Strip<T>>();
+        pairKeys = new LongArray();
+        pairMovers = new IntArray();
+        pairTargets = new Array<T>();
+    }
+
+    // THE RESULT
+
+    public int size()
+    {
+        return pairMovers.size;
+    }
+
+    public BaseActor getMover(int pair)
+    {
+        return movers.get( pairMovers.get(pair) );
+    }
+
+    public T getTarget(int pair)
+    {
+        return pairTargets.get(pair);
+    }
+
+
+    // FIND THE PAIRS
+    // the actors without a boundary polygon are skipped
+    public void find(Stage stage, Array<? extends BaseActor> movers)
+    {
+        this.movers = movers;
+        targets = BaseActor.getList(stage, targetType);
+        spatialHash = ActorRegistry.forStage(stage).getSpatialHash();
+        pairMovers.clear();
+        pairTargets.clear();
+        if (movers.size == 0 || targets.size == 0)  return;
+
+        // mark the two groups: an actor found by the hash is recognized and its index is known at once
+        stamp = ++lastStamp;
+        for (int i = 0; i < movers.size; i++)
+        {
+            BaseActor mover = movers.get(i);
+            mover.moverStamp = stamp;
+            mover.moverSlot = i;
+        }
+        for (int k = 0; k < targets.size; k++)
+        {
+            BaseActor target = targets.get(k);
+            target.targetStamp = stamp;
+            target.targetSlot = k;
+        }
+
+        // 1. refresh - separately, a mover may be a target too (and must not be refreshed by two tasks at once)
+        refresh(movers);
+        refresh(targets);
+
+        // 2. strips of the smaller group
+        aroundTargets = targets.size < movers.size;
+        Array<? extends BaseActor> askers = aroundTargets ? targets : movers;
+        int n = askers.size;
+        boolean parallel = ParallelPhysics.useFor(movers.size + targets.size);
+        int stripCount = parallel ? ParallelPhysics.getPool().getParallelism() * 4 : 1;
+        prepareStrips(stripCount);
+        float worldHeight = (BaseActor.getWorldBounds() != null) ? BaseActor.getWorldBounds().height : 0;
+        for (int i = 0; i < n; i++)
+        {
+            BaseActor asker = askers.get(i);
+            if ( !asker.hasBoundary() )  continue;
+            int strip = (worldHeight > 0) ? (int) (asker.getY() / worldHeight * stripCount) : 0;
+            strips.get( MathUtils.clamp(strip, 0, stripCount - 1) ).askers.add(asker);
+        }
+
+        if (parallel)
+            ParallelPhysics.getPool().invoke( new RecursiveAction()
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute()
+                {
+                    for (int s = 1; s < strips.size; s++)
+                        strips.get(s).fork();
+                    strips.get(0).compute();
+                    for (int s = 1; s < strips.size; s++)
+                        strips.get(s).join();
+                }
+            } );
+        else
+            strips.get(0).compute();
+
+        // 3. merge: sorted by mover index, then by target index
+        pairKeys.clear();
+        for (int s = 0; s < stripCount; s++)
+        {
+            Strip<T> strip = strips.get(s);
+            pairKeys.addAll(strip.foundKeys);
+            strip.askers.clear();           // no references kept until the next tick
+        }
+        pairKeys.sort();
+        for (int p = 0; p < pairKeys.size; p++)
+        {
+            long key = pairKeys.get(p);
+            pairMovers.add( (int) (key >>> 32) );
+            pairTargets.add( targets.get( (int) key ) );
+        }
+    }
+
+    private void prepareStrips(int count)
+    {
+        while (strips.size < count)
+            strips.add( new Strip<T>(this) );
+        for (int s = 0; s < count; s++)
+            strips.get(s).prepare();
+        strips.truncate(count);
+    }
+
+    private static void refresh(Array<? extends BaseActor> actors)
+    {
+        if ( ParallelPhysics.useFor(actors.size) )
+        {
+            RefreshTask task = new RefreshTask(actors, 0, actors.size);
+            ParallelPhysics.getPool().invoke(task);
+            BaseActor.countBoundaryRefreshes( task.recomputed, actors.size - task.recomputed );
+            return;
+        }
+        for (int i = 0; i < actors.size; i++)
+            if ( actors.get(i).hasBoundary() )  actors.get(i).getBoundaryPolygon();
+    }
+
+
+    // TASKS
+
+    // the askers of one horizontal strip of the world (a task is used once: it is reinitialized every tick)
+    private static class Strip<T extends BaseActor> extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private ContactFinder<T> finder;
+        Array<BaseActor> askers = new Array<BaseActor>(false, 64, BaseActor.class);
+        LongArray foundKeys = new LongArray();
+        private Array<BaseActor> nearby = new Array<BaseActor>(false, 64, BaseActor.class);
+
+        Strip(ContactFinder<T> finder)
+        {
+            this.finder = finder;
+        }
+
+        void prepare()
+        {
+            reinitialize();
+            askers.clear();
+            foundKeys.clear();
+        }
+
+        @Override
+        protected void compute()
+        {
+            int stamp = finder.stamp;
+            boolean aroundTargets = finder.aroundTargets;
+            for (int k = 0; k < askers.size; k++)
+            {
+                BaseActor asker = askers.get(k);
+                nearby.clear();
+                finder.spatialHash.query( asker.getBoundsMinX(), asker.getBoundsMinY(), asker.getBoundsMaxX(),
+                        asker.getBoundsMaxY(), BaseActor.class, asker, nearby );      // reads only
+                for (int j = 0; j < nearby.size; j++)
+                {
+                    BaseActor other = nearby.get(j);
+                    BaseActor mover = aroundTargets ? other : asker;
+                    BaseActor target = aroundTargets ? asker : other;
+                    if (mover.moverStamp != stamp || target.targetStamp != stamp)  continue;
+                    if ( mover.overlapsRefreshed(target) )
+                        foundKeys.add( ((long) mover.moverSlot << 32) | target.targetSlot );
+                }
+            }
+            nearby.clear();
+        }
+    }
+
+    private static class RefreshTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private Array<? extends BaseActor> actors;
+        private int from, to;
+        long recomputed;
+
+        RefreshTask(Array<? extends BaseActor> actors, int from, int to)
+        {
+            this.actors = actors;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from <= ParallelPhysics.TASK_ITEMS)
+            {
+                for (int i = from; i < to; i++)
+                    if ( actors.get(i).hasBoundary() && actors.get(i).refreshBoundary() )  recomputed++;
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            RefreshTask left = new RefreshTask(actors, from, middle);
+            RefreshTask right = new RefreshTask(actors, middle, to);
+            invokeAll(left, right);
+            recomputed = left.recomputed + right.recomputed;
+        }
+    }
+}
@@ -1,55 +1,162 @@
 package com.starfishcoll;
 
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.BitmapFontCache;
+import com.badlogic.gdx.graphics.g2d.GlyphLayout;
+import com.badlogic.gdx.scenes.scene2d.Actor;
 import com.badlogic.gdx.scenes.scene2d.Stage;
-import com.badlogic.gdx.scenes.scene2d.ui.Label;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.utils.Align;
 
 /**
  * Dialog box with easily adjustable parameters
+ * The text is not a Label: its wrapped layout comes from the FontService cache, so a text shown again
+ * (a sign, a line of a scene) is not laid out again - only its glyphs are put into the BitmapFontCache.
+ * The first N glyphs of the text can be drawn alone (TypewriterAction): the text is laid out only once.
  * 18/01/2022
  */
 
 public class DialogBox extends BaseActor
 {
-    private Label dialogLabel;
+    private DialogText dialogText;
     private float padding = 16;
 
     public DialogBox(float x, float y, Stage s)
     {
         super(x,y,s);
         loadTexture("dialog-translucent.png");
-        dialogLabel = new Label(" ", BaseGame.labelStyle);
-        dialogLabel.setWrap(true);
-        dialogLabel.setAlignment( Align.topLeft );
-        dialogLabel.setPosition( padding, padding );
+        dialogText = new DialogText( BaseGame.labelStyle.font );
+        dialogText.setPosition( padding, padding );
         this.setDialogSize( getWidth(), getHeight() );
-        this.addActor(dialogLabel);
+        this.addActor(dialogText);
     }
 
-    // to keep the size of the label and the background image in sync
+    // to keep the size of the text and the background image in sync
     public void setDialogSize(float width, float height)
     {
         this.setSize(width, height);
-        dialogLabel.setWidth( width - 2 * padding );
-        dialogLabel.setHeight( height - 2 * padding );
+        dialogText.setSize( width - 2 * padding, height - 2 * padding );
     }
 
     public void setText(String text)
-    { dialogLabel.setText(text); }
+    { dialogText.setText(text); }
+
+    // the number of glyphs of the text (its layout is made now if needed)
+    public int getGlyphCount()
+    { return dialogText.getGlyphCount(); }
+
+    // only the first count glyphs are drawn (until the next setText)
+    public void setVisibleGlyphs(int count)
+    { dialogText.visibleGlyphs = count; }
+
+    public int getVisibleGlyphs()
+    { return Math.min( dialogText.visibleGlyphs, getGlyphCount() ); }
+
+    public String getText()
+    { return dialogText.text; }
 
     public void setFontScale(float scale)
-    { dialogLabel.setFontScale(scale); }
+    { dialogText.setFontScale(scale); }
 
     public void setFontColor(Color color)
-    { dialogLabel.setColor(color); }
+    { dialogText.setColor(color); }
 
     public void setBackgroundColor(Color color)
     { this.setColor(color); }
 
     public void alignTopLeft()
-    { dialogLabel.setAlignment( Align.topLeft ); }
+    { dialogText.setAlignment( Align.topLeft ); }
 
     public void alignCenter()
-    { dialogLabel.setAlignment( Align.center ); }
-}
\ No newline at end of file
+    { dialogText.setAlignment( Align.center ); }
+
+
+    // the wrapped text inside the padding, aligned as a Label would align it
+    private static class DialogText extends Actor
+    {
+        private BitmapFontCache cache;
+        private String text = " ";
+        private float fontScale = 1;
+        private int align = Align.topLeft;
+        private boolean dirty = true;          // the glyphs must be put into the cache again
+        private int glyphCount;
+        int visibleGlyphs = Integer.MAX_VALUE;  // drawn from the start of the text
+        private Color tint = new Color();
+
+        DialogText(BitmapFont font)
+        {
+            cache = font.newFontCache();
+        }
+
+        void setText(String newText)
+        {
+            visibleGlyphs = Integer.MAX_VALUE;
+            if ( newText.equals(text) )  return;
+            text = newText;
+            dirty = true;
+        }
+
+        void setFontScale(float scale)
+        {
+            fontScale = scale;
+            dirty = true;
+        }
+
+        void setAlignment(int alignment)
+        {
+            align = alignment;
+            dirty = true;
+        }
+
+        @Override
+        protected void sizeChanged()
+        {
+            dirty = true;
+        }
+
+        // the glyphs relative to the bottom left corner of the actor
+        private void fillCache()
+        {
+            BitmapFont font = cache.getFont();
+            GlyphLayout layout = FontService.layout(font, text, getWidth(), fontScale, align);
+
+            float scaleX = font.getData().scaleX;
+            float scaleY = font.getData().scaleY;
+            font.getData().setScale(fontScale);
+            float y;
+            if ( (align & Align.top) != 0 )
+                y = getHeight() - layout.height + font.getDescent();
+            else if ( (align & Align.bottom) != 0 )
+                y = -font.getDescent();
+            else
+                y = (getHeight() - layout.height) / 2;
+            cache.setText(layout, 0, y + layout.height);      // (glyphs use the scale of the font when added)
+            font.getData().setScale(scaleX, scaleY);
+            glyphCount = 0;
+            for (int page = 0; page < font.getRegions().size; page++)
+                glyphCount += cache.getVertexCount(page) / 20;        // (4 vertices of 5 floats per glyph)
+            dirty = false;
+        }
+
+        int getGlyphCount()
+        {
+            if (dirty)  fillCache();
+            return glyphCount;
+        }
+
+        @Override
+        public void draw(Batch batch, float parentAlpha)
+        {
+            if (dirty)  fillCache();
+            cache.setPosition( getX(), getY() );
+            tint.set( getColor() );
+            tint.a *= parentAlpha;
+            cache.tint(tint);
+            if (visibleGlyphs >= glyphCount)
+                cache.draw(batch);
+            else if (visibleGlyphs > 0)
+                cache.draw(batch, 0, visibleGlyphs);
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.starfishcoll;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.PixmapIO;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.Texture.TextureFilter;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.BitmapFont.Glyph;
+import com.badlogic.gdx.graphics.g2d.GlyphLayout;
+import com.badlogic.gdx.graphics.g2d.PixmapPacker;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeFontGenerator;
+import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeFontGenerator.FreeTypeBitmapFontData;
+import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeFontGenerator.FreeTypeFontParameter;
+import com.badlogic.gdx.utils.Align;
+import com.badlogic.gdx.utils.IntMap;
+
+/**
+ * Part of Game FW   implemented during creating Starfish Collector game
+ *   The fonts of the game, from FONT_FILE (FreeType) - generated once, then loaded from a disk cache
+ *
+ *        Fonts: one BitmapFont per size, shared by every style (BaseGame.labelStyle...), disposed with the game.
+ *        Disk cache: the glyph pages of a generated font are written to CACHE_DIR as PNG files (PixmapIO) with
+ *        an AngelCode .fnt file, so the next start loads two small files instead of rasterizing the TTF again.
+ *        The name of the cached font contains a hash of the TTF size and the parameters: a change generates anew.
+ *        Layouts: layout() keeps the last LAYOUT_CACHE_SIZE GlyphLayouts (text, width, scale, alignment of a font),
+ *        so a sign or dialog text shown again is not wrapped and measured again (see DialogBox).
+ *        The cached layouts are shared: they must not be changed by the caller.
+ */
+
+public class FontService
+{
+    public static final String FONT_FILE = "OpenSans.ttf";
+    public static final String CACHE_DIR = "font-cache";
+    public static final int LAYOUT_CACHE_SIZE = 64;
+    private static final int CACHE_VERSION = 2;         // raise it when the generation below changes
+    private static final int PAGE_SIZE = 1024;
+
+    private static IntMap<BitmapFont> fonts = new IntMap<BitmapFont>();
+
+    // least recently used first: the access order of the LinkedHashMap
+    private static LinkedHashMap<LayoutKey, GlyphLayout> layouts =
+            new LinkedHashMap<LayoutKey, GlyphLayout>(LAYOUT_CACHE_SIZE * 2, 0.75f, true)
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<LayoutKey, GlyphLayout> eldest)
+                {
+                    return size() > LAYOUT_CACHE_SIZE;
+                }
+            };
+    private static LayoutKey probe = new LayoutKey();     // reused for the lookups
+
+    // statistics
+    private static int generatedFonts, cachedFonts;
+    private static int layoutHits, layoutMisses;
+
+
+    // FONTS
+
+    // the font of the game in the given pixel size (white with black border, as the styles of BaseGame need it)
+    public static BitmapFont getFont(int size)
+    {
+        BitmapFont font = fonts.get(size);
+        if (font == null)
+        {
+            font = loadFont(size);
+            fonts.put(size, font);
+        }
+        return font;
+    }
+
+    private static FreeTypeFontParameter parameters(int size)
+    {
+        FreeTypeFontParameter p = new FreeTypeFontParameter();
+        p.size = size;
+        p.color = Color.WHITE;
+        p.borderWidth = 2;
+        p.borderColor = Color.BLACK;
+        p.borderStraight = true;
+        p.minFilter = TextureFilter.Linear;
+        p.magFilter = TextureFilter.Linear;
+        return p;
+    }
+
+    private static BitmapFont loadFont(int size)
+    {
+        FileHandle ttf = Gdx.files.internal(FONT_FILE);
+        FreeTypeFontParameter p = parameters(size);
+        String key = CACHE_VERSION + "|" + ttf.length() + "|" + p.size + "|" + p.color + "|" + p.borderWidth + "|"
+                + p.borderColor + "|" + p.borderStraight + "|" + p.characters.hashCode();
+        String name = ttf.nameWithoutExtension() + "-" + size + "-" + Integer.toHexString( key.hashCode() );
+        FileHandle fntFile = Gdx.files.local(CACHE_DIR + "/" + name + ".fnt");
+
+        if ( fntFile.exists() )
+        {
+            try
+            {
+                BitmapFont font = linear( new BitmapFont(fntFile) );
+                cachedFonts++;
+                return font;
+            }
+            catch (RuntimeException e)          // a broken cache file: generated again
+            {
+                Gdx.app.error("FontService", "cached font unreadable, generating again: " + fntFile, e);
+            }
+        }
+
+        generate(ttf, p, fntFile);
+        generatedFonts++;
+        return linear( new BitmapFont(fntFile) );
+    }
+
+    // the glyphs rasterized into pixmap pages, written as PNG pages + .fnt (the .fnt last: it marks a complete font)
+    private static void generate(FileHandle ttf, FreeTypeFontParameter parameter, FileHandle fntFile)
+    {
+        FreeTypeFontGenerator generator = new FreeTypeFontGenerator(ttf);
+        PixmapPacker packer = new PixmapPacker(PAGE_SIZE, PAGE_SIZE, Pixmap.Format.RGBA8888, 2, false);
+        parameter.packer = packer;
+        try
+        {
+            FreeTypeBitmapFontData data = generator.generateData(parameter);
+            String base = fntFile.nameWithoutExtension();
+            String[] pageFiles = new String[ packer.getPages().size ];
+            for (int i = 0; i < pageFiles.length; i++)
+            {
+                pageFiles[i] = base + "_" + i + ".png";
+                PixmapIO.writePNG( fntFile.sibling(pageFiles[i]), packer.getPages().get(i).getPixmap() );
+            }
+            fntFile.writeString( toFnt(data, parameter.size, parameter.characters, pageFiles), false, "UTF-8" );
+        }
+        finally
+        {
+            // with a packer of ours generateData() leaves the pages as pixmaps (it makes page textures only for a
+            // packer of its own) - a page that got a texture anyway goes with it: packer.dispose() skips such pages
+            for (int i = 0; i < packer.getPages().size; i++)
+            {
+                Texture pageTexture = packer.getPages().get(i).getTexture();
+                if (pageTexture != null)  pageTexture.dispose();
+            }
+            packer.dispose();
+            generator.dispose();
+        }
+    }
+
+    // AngelCode BMFont text format, as BitmapFontData reads it back (as the BitmapFontWriter of gdx-tools writes it)
+    private static String toFnt(FreeTypeBitmapFontData data, int size, String characters, String[] pageFiles)
+    {
+        StringBuilder fnt = new StringBuilder(16384);
+        fnt.append("info face=\"").append( FONT_FILE ).append("\" size=").append(size)
+           .append(" bold=0 italic=0 charset=\"\" unicode=1 stretchH=100 smooth=1 aa=1 padding=0,0,0,0 spacing=0,0\n");
+        fnt.append("common lineHeight=").append( (int) data.lineHeight )
+           .append(" base=").append( (int) (data.capHeight + data.ascent) )
+           .append(" scaleW=").append(PAGE_SIZE).append(" scaleH=").append(PAGE_SIZE)
+           .append(" pages=").append(pageFiles.length).append(" packed=0\n");
+        for (int i = 0; i < pageFiles.length; i++)
+            fnt.append("page id=").append(i).append(" file=\"").append( pageFiles[i] ).append("\"\n");
+
+        int glyphCount = 0;
+        StringBuilder chars = new StringBuilder(16384);
+        StringBuilder kernings = new StringBuilder();
+        int kerningCount = 0;
+        for (int i = 0; i < characters.length(); i++)
+        {
+            Glyph g = data.getGlyph( characters.charAt(i) );
+            if (g == null || characters.indexOf(characters.charAt(i)) != i)  continue;     // (no glyph, repeated)
+            glyphCount++;
+            chars.append("char id=").append(g.id).append(" x=").append(g.srcX).append(" y=").append(g.srcY)
+                 .append(" width=").append(g.width).append(" height=").append(g.height)
+                 .append(" xoffset=").append(g.xoffset).append(" yoffset=").append( -(g.height + g.yoffset) )
+                 .append(" xadvance=").append(g.xadvance).append(" page=").append(g.page).append(" chnl=0\n");
+            if (g.kerning == null)  continue;
+            for (int k = 0; k < g.kerning.length; k++)          // kerning[char / 512][char % 512]
+            {
+                if (g.kerning[k] == null)  continue;
+                for (int c = 0; c < g.kerning[k].length; c++)
+                    if (g.kerning[k][c] != 0)
+                    {
+                        kerningCount++;
+                        kernings.append("kerning first=").append(g.id).append(" second=").append(k * 512 + c)
+                                .append(" amount=").append( g.kerning[k][c] ).append('\n');
+                    }
+            }
+        }
+        fnt.append("chars count=").append(glyphCount).append('\n').append(chars);
+        fnt.append("kernings count=").append(kerningCount).append('\n').append(kernings);
+        // without it BitmapFontData would estimate these from the glyphs (with the border): FreeType's values are kept
+        fnt.append("metrics ascent=").append(data.ascent).append(" descent=").append(data.descent)
+           .append(" down=").append(data.down).append(" capHeight=").append(data.capHeight)
+           .append(" lineHeight=").append(data.lineHeight).append(" spaceXAdvance=").append(data.spaceXadvance)
+           .append(" xHeight=").append(data.xHeight).append('\n');
+        return fnt.toString();
+    }
+
+    private static BitmapFont linear(BitmapFont font)
+    {
+        for (TextureRegion region : font.getRegions())
+            region.getTexture().setFilter(TextureFilter.Linear, TextureFilter.Linear);
+        return font;
+    }
+
+
+    // LAYOUTS
+
+    // the text wrapped into the width at the scale of the font (data scale 1 = the generated size)
+    public static GlyphLayout layout(BitmapFont font, String text, float width, float scale, int align)
+    {
+        probe.set(font, text, width, scale, align);
+        GlyphLayout layout = layouts.get(probe);
+        if (layout != null)
+        {
+            layoutHits++;
+            return layout;
+        }
+        layoutMisses++;
+
+        float scaleX = font.getData().scaleX;
+        float scaleY = font.getData().scaleY;
+        font.getData().setScale(scale);
+        layout = new GlyphLayout();
+        layout.setText(font, text, 0, text.length(), Color.WHITE, width, align & (Align.left | Align.right | Align.center), true, null);
+        font.getData().setScale(scaleX, scaleY);
+
+        LayoutKey key = new LayoutKey();
+        key.set(font, text, width, scale, align);
+        layouts.put(key, layout);
+        return layout;
+    }
+
+    public static int getLayoutHits()
+    {
+        return layoutHits;
+    }
+
+    public static int getLayoutMisses()
+    {
+        return layoutMisses;
+    }
+
+    public static int getGeneratedFontCount()
+    {
+        return generatedFonts;
+    }
+
+    public static int getCachedFontCount()
+    {
+        return cachedFonts;
+    }
+
+    // the game ends: the fonts (and the layouts pointing to their glyphs) are dropped
+    public static void dispose()
+    {
+        for (BitmapFont font : fonts.values())
+            font.dispose();
+        fonts.clear();
+        layouts.clear();
+    }
+
+
+    private static class LayoutKey
+    {
+        BitmapFont font;
+        String text;
+        float width, scale;
+        int align;
+
+        void set(BitmapFont font, String text, float width, float scale, int align)
+        {
+            this.font = font;
+            this.text = text;
+            this.width = width;
+            this.scale = scale;
+            this.align = align;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if ( !(o instanceof LayoutKey) )  return false;
+            LayoutKey k = (LayoutKey) o;
+            return font == k.font && width == k.width && scale == k.scale && align == k.align && text.equals(k.text);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int h = text.hashCode();
+            h = h * 31 + Float.floatToIntBits(width);
+            h = h * 31 + Float.floatToIntBits(scale);
+            return h * 31 + align;
+        }
+    }
+}
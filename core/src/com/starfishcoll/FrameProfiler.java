@@ -0,0 +1,395 @@
+package com.starfishcoll;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.List;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.StringBuilder;
+
+/**
+ * Part of Game FW   implemented during creating Starfish Collector game
+ *   Where the time of a frame goes: BaseScreen.render() is timed section by section (act of the stages, batched
+ *   physics, update, clear, draw of the stages), with the render calls of the SpriteBatches, the actor counts of
+ *   the tracked types, the garbage collections and the bytes allocated by the render thread in the frame.
+ *
+ *        Ring buffers: every metric has a fixed array of CAPACITY frames, the oldest frame is overwritten -
+ *        recording a frame allocates nothing (the JVM counters are read through beans looked up once).
+ *        Off by default: then a section costs a boolean test. setEnabled(), or the overlay (F3 in BaseScreen)
+ *        switches it on.
+ *        Overlay: rolling p50 / p99 of the sections over the buffer, in a label of the uiStage (BaseScreen).
+ *        Export: write() - CSV (one line per frame) or JSON (p50 / p99 / max per metric), e.g. from the headless runner.
+ */
+
+public class FrameProfiler
+{
+    // sections of a frame
+    public static final int MAIN_ACT = 0;
+    public static final int UI_ACT = 1;
+    public static final int PHYSICS = 2;        // BaseActor.applyBatchedPhysics
+    public static final int UPDATE = 3;
+    public static final int CLEAR = 4;
+    public static final int MAIN_DRAW = 5;
+    public static final int UI_DRAW = 6;
+    public static final int FRAME = 7;          // the whole render()
+    public static final int SECTIONS = 8;
+    public static final String[] SECTION_NAMES =
+            { "mainAct", "uiAct", "physics", "update", "clear", "mainDraw", "uiDraw", "frame" };
+
+    public static final int DEFAULT_CAPACITY = 300;     // 5 seconds at 60 frames per second
+    public static final int MAX_ACTOR_TYPES = 8;
+    private static final int OVERLAY_REFRESH_FRAMES = 30;
+
+    private static boolean enabled = false;
+    private static boolean overlayEnabled = false;
+    private static int capacity;
+    private static int frame;                   // frames recorded so far: the current one is in slot frame % capacity
+    private static int slot;
+    private static long frameStart;
+    private static long[] sectionStart = new long[SECTIONS];
+
+    // the ring buffers
+    private static long[][] sectionNanos;
+    private static int[] ticks;                 // simulation ticks in the frame (fixed timestep: 0..maxSubsteps)
+    private static int[] renderCalls;
+    private static int[] drawnActors;           // actors of the main stage submitted to the batch (not culled)
+    private static int[][] actorCounts;         // per tracked type, on the main stage
+    private static int[] gcCounts;
+    private static int[] gcMillis;
+    private static long[] allocatedBytes;
+
+    private static Array<Class<? extends BaseActor>> actorTypes = new Array<Class<? extends BaseActor>>(MAX_ACTOR_TYPES);
+
+    // JVM counters (null where the platform has none, e.g. Android)
+    private static GarbageCollectorMXBean[] collectors;
+    private static com.sun.management.ThreadMXBean allocationBean;
+    private static long renderThreadId;
+    private static long allocationQueryCost;    // bytes the query itself allocates (boxed ids), subtracted
+    private static long lastGcCount, lastGcMillis, lastAllocated;
+
+    private static long[] sortBuffer;           // for the percentiles
+    private static StringBuilder overlayText = new StringBuilder(256);
+
+    static
+    {
+        setCapacity(DEFAULT_CAPACITY);
+        trackActorType(BaseActor.class);        // all of them
+    }
+
+
+    // SETTINGS
+
+    public static void setEnabled(boolean on)
+    {
+        if (on && !enabled)  resetCounters();
+        enabled = on;
+    }
+
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public static void setOverlayEnabled(boolean on)
+    {
+        overlayEnabled = on;
+        if (on)  setEnabled(true);
+    }
+
+    public static boolean isOverlayEnabled()
+    {
+        return overlayEnabled;
+    }
+
+    // the number of frames kept - the buffers are made here, the recorded frames are dropped
+    public static void setCapacity(int frames)
+    {
+        capacity = frames;
+        sectionNanos = new long[SECTIONS][frames];
+        ticks = new int[frames];
+        renderCalls = new int[frames];
+        drawnActors = new int[frames];
+        actorCounts = new int[MAX_ACTOR_TYPES][frames];
+        gcCounts = new int[frames];
+        gcMillis = new int[frames];
+        allocatedBytes = new long[frames];
+        sortBuffer = new long[frames];
+        frame = 0;
+        slot = 0;
+    }
+
+    // the actors of this class (and its subclasses) are counted on the main stage every frame
+    public static void trackActorType(Class<? extends BaseActor> type)
+    {
+        if ( actorTypes.contains(type, true) )  return;
+        if (actorTypes.size == MAX_ACTOR_TYPES)  return;
+        actorTypes.add(type);
+    }
+
+
+    // RECORDING (called by BaseScreen.render)
+
+    public static void beginFrame()
+    {
+        if (!enabled)  return;
+        slot = frame % capacity;
+        for (int s = 0; s < SECTIONS; s++)
+            sectionNanos[s][slot] = 0;
+        ticks[slot] = 0;
+        renderCalls[slot] = 0;
+        frameStart = System.nanoTime();
+    }
+
+    // a section may run more times in a frame (e.g. the act of several ticks): the times are added up
+    public static void begin(int section)
+    {
+        if (!enabled)  return;
+        sectionStart[section] = System.nanoTime();
+    }
+
+    public static void end(int section)
+    {
+        if (!enabled)  return;
+        sectionNanos[section][slot] += System.nanoTime() - sectionStart[section];
+    }
+
+    public static void countTick()
+    {
+        if (enabled)  ticks[slot]++;
+    }
+
+    // after the stage of the batch is drawn (SpriteBatch.renderCalls: the calls since its last begin())
+    public static void countRenderCalls(Batch batch)
+    {
+        if (enabled && batch instanceof SpriteBatch)
+            renderCalls[slot] += ((SpriteBatch) batch).renderCalls;
+    }
+
+    public static void endFrame(Stage mainStage)
+    {
+        if (!enabled)  return;
+        sectionNanos[FRAME][slot] = System.nanoTime() - frameStart;
+
+        ActorRegistry registry = ActorRegistry.forStage(mainStage);
+        drawnActors[slot] = registry.getDrawnCount();
+        for (int t = 0; t < actorTypes.size; t++)
+            actorCounts[t][slot] = registry.count( actorTypes.get(t) );
+
+        long gcCount = 0, gcTime = 0;
+        if (collectors != null)
+            for (int i = 0; i < collectors.length; i++)
+            {
+                gcCount += Math.max(0, collectors[i].getCollectionCount());
+                gcTime += Math.max(0, collectors[i].getCollectionTime());
+            }
+        gcCounts[slot] = (int) (gcCount - lastGcCount);
+        gcMillis[slot] = (int) (gcTime - lastGcMillis);
+        lastGcCount = gcCount;
+        lastGcMillis = gcTime;
+
+        long allocated = allocatedSoFar();
+        allocatedBytes[slot] = (allocated < 0) ? -1 : Math.max(0, allocated - lastAllocated - allocationQueryCost);
+        lastAllocated = allocated;
+
+        frame++;
+    }
+
+    // the counters of the JVM are looked up once (the lists of ManagementFactory are new objects)
+    private static void resetCounters()
+    {
+        frame = 0;
+        try
+        {
+            List<GarbageCollectorMXBean> beans = ManagementFactory.getGarbageCollectorMXBeans();
+            collectors = beans.toArray( new GarbageCollectorMXBean[beans.size()] );
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            if (threads instanceof com.sun.management.ThreadMXBean)
+            {
+                allocationBean = (com.sun.management.ThreadMXBean) threads;
+                renderThreadId = Thread.currentThread().getId();
+                long a = allocationBean.getThreadAllocatedBytes(renderThreadId);
+                long b = allocationBean.getThreadAllocatedBytes(renderThreadId);
+                allocationQueryCost = Math.max(0, b - a);
+            }
+        }
+        catch (Throwable noManagement)      // (not on every platform)
+        {
+            collectors = null;
+            allocationBean = null;
+        }
+        lastGcCount = lastGcMillis = 0;
+        if (collectors != null)
+            for (int i = 0; i < collectors.length; i++)
+            {
+                lastGcCount += Math.max(0, collectors[i].getCollectionCount());
+                lastGcMillis += Math.max(0, collectors[i].getCollectionTime());
+            }
+        lastAllocated = allocatedSoFar();
+    }
+
+    private static long allocatedSoFar()
+    {
+        return (allocationBean == null) ? -1 : allocationBean.getThreadAllocatedBytes(renderThreadId);
+    }
+
+
+    // QUERIES
+
+    // frames in the buffers
+    public static int getFrameCount()
+    {
+        return Math.min(frame, capacity);
+    }
+
+    // the time of the section in the frame age frames ago (0: the last recorded frame), in nanoseconds
+    public static long getSectionNanos(int section, int age)
+    {
+        return sectionNanos[section][ indexOf(age) ];
+    }
+
+    // the SpriteBatch render calls of both stages in the frame age frames ago
+    public static int getRenderCalls(int age)
+    {
+        return renderCalls[ indexOf(age) ];
+    }
+
+    // p (0..1) percentile of the section over the buffered frames, in nanoseconds
+    public static long percentile(int section, double p)
+    {
+        return percentileOf(sectionNanos[section], p);
+    }
+
+    private static long percentileOf(long[] values, double p)
+    {
+        int n = getFrameCount();
+        if (n == 0)  return 0;
+        System.arraycopy(values, 0, sortBuffer, 0, n);      // (the order of the ring does not matter here)
+        Arrays.sort(sortBuffer, 0, n);
+        int index = (int) Math.ceil(p * n) - 1;
+        return sortBuffer[ Math.max(0, Math.min(n - 1, index)) ];
+    }
+
+    private static int indexOf(int age)
+    {
+        return ((frame - 1 - age) % capacity + capacity) % capacity;
+    }
+
+
+    // OVERLAY
+
+    // the text of the overlay, refreshed twice a second; null if it has not changed
+    static CharSequence overlayText()
+    {
+        if ( frame % OVERLAY_REFRESH_FRAMES != 0 && overlayText.length > 0 )  return null;
+        overlayText.setLength(0);
+        overlayText.append("ms      p50    p99\n");
+        for (int s = 0; s < SECTIONS; s++)
+        {
+            overlayText.append( SECTION_NAMES[s] ).append(":  ");
+            appendMillis( percentile(s, 0.50) );
+            overlayText.append("  ");
+            appendMillis( percentile(s, 0.99) );
+            overlayText.append('\n');
+        }
+        int last = indexOf(0);
+        overlayText.append("render calls: ").append( renderCalls[last] )
+                   .append("  actors: ").append( actorCounts[0][last] )
+                   .append(" (drawn ").append( drawnActors[last] ).append(")\n");
+        overlayText.append("gc: ").append( gcCounts[last] )
+                   .append("  alloc KB: ").append( (int) (allocatedBytes[last] / 1024) );
+        return overlayText;
+    }
+
+    // hundredths of a millisecond, without String.format
+    private static void appendMillis(long nanos)
+    {
+        long hundredths = nanos / 10000;
+        overlayText.append( (int) (hundredths / 100) ).append('.');
+        int fraction = (int) (hundredths % 100);
+        if (fraction < 10)  overlayText.append('0');
+        overlayText.append(fraction);
+    }
+
+
+    // EXPORT
+
+    // the buffered frames into the file: .json - summary (p50, p99, max per metric), anything else - CSV per frame
+    public static void write(FileHandle file)
+    {
+        String text = file.extension().equalsIgnoreCase("json") ? toJson() : toCsv();
+        file.writeString(text, false);
+    }
+
+    public static String toCsv()
+    {
+        StringBuilder csv = new StringBuilder();
+        csv.append("frame,ticks");
+        for (int s = 0; s < SECTIONS; s++)
+            csv.append(',').append( SECTION_NAMES[s] ).append("Nanos");
+        csv.append(",renderCalls,drawnActors");
+        for (int t = 0; t < actorTypes.size; t++)
+            csv.append(',').append( actorTypes.get(t).getSimpleName() );
+        csv.append(",gcCount,gcMillis,allocatedBytes\n");
+
+        int n = getFrameCount();
+        for (int age = n - 1; age >= 0; age--)      // the oldest first
+        {
+            int i = indexOf(age);
+            csv.append(frame - 1 - age).append(',').append( ticks[i] );
+            for (int s = 0; s < SECTIONS; s++)
+                csv.append(',').append( sectionNanos[s][i] );
+            csv.append(',').append( renderCalls[i] ).append(',').append( drawnActors[i] );
+            for (int t = 0; t < actorTypes.size; t++)
+                csv.append(',').append( actorCounts[t][i] );
+            csv.append(',').append( gcCounts[i] ).append(',').append( gcMillis[i] )
+               .append(',').append( allocatedBytes[i] ).append('\n');
+        }
+        return csv.toString();
+    }
+
+    public static String toJson()
+    {
+        int n = getFrameCount();
+        long[] values = new long[capacity];         // (export only: not per frame)
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"frames\": ").append(n).append(",\n");
+        for (int s = 0; s < SECTIONS; s++)
+            appendSummary(json, SECTION_NAMES[s] + "Nanos", sectionNanos[s]);
+        for (int i = 0; i < capacity; i++)  values[i] = renderCalls[i];
+        appendSummary(json, "renderCalls", values);
+        for (int i = 0; i < capacity; i++)  values[i] = drawnActors[i];
+        appendSummary(json, "drawnActors", values);
+        for (int t = 0; t < actorTypes.size; t++)
+        {
+            for (int i = 0; i < capacity; i++)  values[i] = actorCounts[t][i];
+            appendSummary(json, "actors" + actorTypes.get(t).getSimpleName(), values);
+        }
+        long gcTotal = 0, gcTimeTotal = 0, allocatedTotal = 0;
+        for (int i = 0; i < n; i++)
+        {
+            gcTotal += gcCounts[i];
+            gcTimeTotal += gcMillis[i];
+            allocatedTotal += allocatedBytes[i];
+        }
+        appendSummary(json, "allocatedBytes", allocatedBytes);
+        json.append("  \"gcCount\": ").append(gcTotal).append(",\n");
+        json.append("  \"gcMillis\": ").append(gcTimeTotal).append(",\n");
+        json.append("  \"allocatedBytesPerFrame\": ").append( (n == 0 || allocationBean == null) ? -1 : allocatedTotal / n ).append("\n");
+        json.append("}\n");
+        return json.toString();
+    }
+
+    private static void appendSummary(StringBuilder json, String name, long[] values)
+    {
+        json.append("  \"").append(name).append("\": { \"p50\": ").append( percentileOf(values, 0.50) )
+            .append(", \"p99\": ").append( percentileOf(values, 0.99) )
+            .append(", \"max\": ").append( percentileOf(values, 1) ).append(" },\n");
+    }
+}
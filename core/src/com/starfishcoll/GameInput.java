@@ -0,0 +1,431 @@
+package com.starfishcoll;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input.Keys;
+import com.badlogic.gdx.InputMultiplexer;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.ByteArray;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * Part of Game FW   implemented during creating Starfish Collector game
+ *   The input of the game tick by tick, between the devices and the game: it can be recorded into a compact binary
+ *   log and played back later, so a session (e.g. a route that caused a hitch) can be reproduced exactly.
+ *
+ *        Held keys: the actors ask GameInput.isKeyPressed() instead of Gdx.input. The TRACKED_KEYS are sampled once
+ *        at the start of every tick (BaseScreen.tick), so every actor of a tick sees the same state.
+ *        Events: the InputMultiplexer of BaseGame is a GameInput.Multiplexer - keyDown, touchDown... (stages, buttons,
+ *        the InputProcessor methods of BaseScreen) are logged with the number of the tick they come before.
+ *        Log: a record only when something changes: [ticks since the previous record][type][data], numbers in
+ *        variable length - a few bytes per key press. Recording costs a sample of the tracked keys per tick.
+ *        Playback: the records are fed back at their ticks, the live devices are ignored meanwhile. The events of a
+ *        tick are played before any screen acts in it (playEvents: at the start of the frame and before every
+ *        substep), as live events come between two frames - a screen switch they cause happens at the same tick.
+ *        With the fixed timestep and without the loading screen (BaseGame switches it off) the same ticks get
+ *        the same input; the log also keeps a seed for the random parts of a run (e.g. the headless runner).
+ */
+
+public class GameInput
+{
+    // the keys held down are recorded only for these (other keys are asked from Gdx.input, not recorded)
+    public static final int[] TRACKED_KEYS = { Keys.LEFT, Keys.RIGHT, Keys.UP, Keys.DOWN,
+                                               Keys.ENTER, Keys.ESCAPE, Keys.SPACE, Keys.C };
+
+    private static final int LIVE = 0;
+    private static final int RECORDING = 1;
+    private static final int REPLAYING = 2;
+
+    // record types
+    private static final byte KEYS = 0;             // the held tracked keys changed: bit mask
+    private static final byte KEY_DOWN = 1;
+    private static final byte KEY_UP = 2;
+    private static final byte KEY_TYPED = 3;
+    private static final byte TOUCH_DOWN = 4;
+    private static final byte TOUCH_UP = 5;
+    private static final byte TOUCH_DRAGGED = 6;
+    private static final byte MOUSE_MOVED = 7;
+    private static final byte SCROLLED = 8;
+    private static final byte END = 9;
+
+    private static final int MAGIC = 0x53464952;    // "SFIR" - starfish input recording
+    private static final byte VERSION = 1;
+
+    private static int mode = LIVE;
+    private static int tick;                // the number of the next tick (since the recording / playback started)
+    private static int keyMask;             // the tracked keys held in the current tick (bit i: TRACKED_KEYS[i])
+    private static Multiplexer multiplexer;
+    private static String recordPath;       // launcher options
+    private static String replayPath;
+
+    // recording
+    private static ByteArray log;
+    private static int lastRecordTick;
+
+    // playback
+    private static byte[] replay;
+    private static int position;
+    private static int recordTick;          // the tick of the record at position
+    private static boolean replayFinished;
+    private static long seed;
+
+
+    // the central dispatcher of discrete input (called by BaseGame.create())
+    // a recording or playback asked by the launcher starts here
+    public static InputMultiplexer install()
+    {
+        multiplexer = new Multiplexer();
+        Gdx.input.setInputProcessor(multiplexer);
+        if (replayPath != null)
+            startReplay( Gdx.files.local(replayPath).readBytes() );
+        else if (recordPath != null)
+            startRecording(0);
+        return multiplexer;
+    }
+
+    // launcher options, before the application starts: record the session into the file / play the file back
+    public static void recordTo(String path)
+    {
+        recordPath = path;
+    }
+
+    public static void replayFrom(String path)
+    {
+        replayPath = path;
+    }
+
+    // called by BaseGame.dispose(): the recording asked by the launcher is saved
+    public static void shutdown()
+    {
+        if (mode == RECORDING && recordPath != null)
+            Gdx.files.local(recordPath).writeBytes( stopRecording(), false );
+        mode = LIVE;
+    }
+
+
+    // HELD KEYS
+
+    public static boolean isKeyPressed(int key)
+    {
+        int index = trackedIndex(key);
+        if (index < 0)  return (mode != REPLAYING) && Gdx.input.isKeyPressed(key);
+        return (keyMask & (1 << index)) != 0;
+    }
+
+    private static int trackedIndex(int key)
+    {
+        for (int i = 0; i < TRACKED_KEYS.length; i++)
+            if (TRACKED_KEYS[i] == key)  return i;
+        return -1;
+    }
+
+    // at the start of every tick (BaseScreen.tick): the keys of the tick, recorded if they changed / from the log
+    public static void beginTick()
+    {
+        if (mode == REPLAYING)
+            playRecords();
+        else
+        {
+            int mask = 0;
+            for (int i = 0; i < TRACKED_KEYS.length; i++)
+                if ( Gdx.input.isKeyPressed(TRACKED_KEYS[i]) )  mask |= 1 << i;
+            if (mode == RECORDING && mask != keyMask)
+            {
+                writeRecord(KEYS);
+                writeNumber(mask);
+            }
+            keyMask = mask;
+        }
+        tick++;
+    }
+
+    // playback: the records of the next tick, before any screen acts (BaseGame.render, the substeps of BaseScreen)
+    // nothing happens if they have been played already, or when not playing back
+    public static void playEvents()
+    {
+        if (mode == REPLAYING)  playRecords();
+    }
+
+    public static int getTick()
+    {
+        return tick;
+    }
+
+
+    // RECORDING
+
+    public static void startRecording(long randomSeed)
+    {
+        mode = RECORDING;
+        log = new ByteArray(4096);
+        for (int shift = 24; shift >= 0; shift -= 8)
+            log.add( (byte) (MAGIC >>> shift) );
+        log.add(VERSION);
+        for (int shift = 56; shift >= 0; shift -= 8)
+            log.add( (byte) (randomSeed >>> shift) );
+        seed = randomSeed;
+        tick = 0;
+        lastRecordTick = 0;
+        keyMask = 0;
+    }
+
+    // the log until now (the end is marked at the current tick)
+    public static byte[] stopRecording()
+    {
+        if (mode != RECORDING)  throw new GdxRuntimeException("not recording");
+        writeRecord(END);
+        mode = LIVE;
+        byte[] bytes = log.toArray();
+        log = null;
+        return bytes;
+    }
+
+    public static boolean isRecording()
+    {
+        return mode == RECORDING;
+    }
+
+    public static int getRecordedBytes()
+    {
+        return (log == null) ? 0 : log.size;
+    }
+
+    private static void writeRecord(byte type)
+    {
+        writeNumber(tick - lastRecordTick);
+        log.add(type);
+        lastRecordTick = tick;
+    }
+
+    // zigzag + 7 bits per byte: small numbers (also negative ones) in 1-2 bytes
+    private static void writeNumber(int n)
+    {
+        int value = (n << 1) ^ (n >> 31);
+        while ( (value & ~0x7F) != 0 )
+        {
+            log.add( (byte) ((value & 0x7F) | 0x80) );
+            value >>>= 7;
+        }
+        log.add( (byte) value );
+    }
+
+    private static void writeFloat(float f)
+    {
+        int bits = Float.floatToIntBits(f);
+        for (int shift = 24; shift >= 0; shift -= 8)
+            log.add( (byte) (bits >>> shift) );
+    }
+
+
+    // PLAYBACK
+
+    public static void startReplay(FileHandle file)
+    {
+        startReplay( file.readBytes() );
+    }
+
+    public static void startReplay(byte[] data)
+    {
+        if (data.length < 13 || readInt(data, 0) != MAGIC || data[4] != VERSION)
+            throw new GdxRuntimeException("not an input recording (or of another version)");
+        replay = data;
+        seed = ((long) readInt(data, 5) << 32) | (readInt(data, 9) & 0xFFFFFFFFL);
+        position = 13;
+        mode = REPLAYING;
+        tick = 0;
+        keyMask = 0;
+        recordTick = 0;
+        replayFinished = false;
+        readRecordTick();
+    }
+
+    public static void stopReplay()
+    {
+        mode = LIVE;
+        replay = null;
+    }
+
+    public static boolean isReplaying()
+    {
+        return mode == REPLAYING;
+    }
+
+    // the end of the log is reached: no keys are held from now on
+    public static boolean isReplayFinished()
+    {
+        return replayFinished;
+    }
+
+    // the seed stored in the recording being played (or recorded)
+    public static long getSeed()
+    {
+        return seed;
+    }
+
+    // every record of the current tick: the held keys are set, the events go to the multiplexer as they came
+    private static void playRecords()
+    {
+        while ( !replayFinished && recordTick == tick )
+        {
+            byte type = replay[position++];
+            switch (type)
+            {
+                case KEYS:          keyMask = readNumber();  break;
+                case KEY_DOWN:      multiplexer.playKeyDown( readNumber() );  break;
+                case KEY_UP:        multiplexer.playKeyUp( readNumber() );  break;
+                case KEY_TYPED:     multiplexer.playKeyTyped( (char) readNumber() );  break;
+                case TOUCH_DOWN:    multiplexer.playTouchDown( readNumber(), readNumber(), readNumber(), readNumber() );  break;
+                case TOUCH_UP:      multiplexer.playTouchUp( readNumber(), readNumber(), readNumber(), readNumber() );  break;
+                case TOUCH_DRAGGED: multiplexer.playTouchDragged( readNumber(), readNumber(), readNumber() );  break;
+                case MOUSE_MOVED:   multiplexer.playMouseMoved( readNumber(), readNumber() );  break;
+                case SCROLLED:      multiplexer.playScrolled( readFloat(), readFloat() );  break;
+                case END:
+                    replayFinished = true;
+                    keyMask = 0;
+                    return;
+                default:
+                    throw new GdxRuntimeException("broken input recording at byte " + (position - 1));
+            }
+            readRecordTick();
+        }
+    }
+
+    private static void readRecordTick()
+    {
+        if (position >= replay.length)
+        {
+            replayFinished = true;      // (a log without its end mark)
+            keyMask = 0;
+            return;
+        }
+        recordTick += readNumber();
+    }
+
+    private static int readNumber()
+    {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do
+        {
+            b = replay[position++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        }
+        while ( (b & 0x80) != 0 );
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static float readFloat()
+    {
+        float f = Float.intBitsToFloat( readInt(replay, position) );
+        position += 4;
+        return f;
+    }
+
+    private static int readInt(byte[] data, int at)
+    {
+        return ((data[at] & 0xFF) << 24) | ((data[at + 1] & 0xFF) << 16) | ((data[at + 2] & 0xFF) << 8) | (data[at + 3] & 0xFF);
+    }
+
+
+    // EVENTS: the multiplexer logs them while recording, ignores the devices while playing back
+
+    public static class Multiplexer extends InputMultiplexer
+    {
+        private boolean live()
+        {
+            return mode != REPLAYING;
+        }
+
+        private boolean recording()
+        {
+            return mode == RECORDING;
+        }
+
+        @Override
+        public boolean keyDown(int keycode)
+        {
+            if ( !live() )  return false;
+            if ( recording() )  { writeRecord(KEY_DOWN); writeNumber(keycode); }
+            return super.keyDown(keycode);
+        }
+
+        @Override
+        public boolean keyUp(int keycode)
+        {
+            if ( !live() )  return false;
+            if ( recording() )  { writeRecord(KEY_UP); writeNumber(keycode); }
+            return super.keyUp(keycode);
+        }
+
+        @Override
+        public boolean keyTyped(char character)
+        {
+            if ( !live() )  return false;
+            if ( recording() )  { writeRecord(KEY_TYPED); writeNumber(character); }
+            return super.keyTyped(character);
+        }
+
+        @Override
+        public boolean touchDown(int screenX, int screenY, int pointer, int button)
+        {
+            if ( !live() )  return false;
+            if ( recording() )
+            {
+                writeRecord(TOUCH_DOWN);
+                writeNumber(screenX);  writeNumber(screenY);  writeNumber(pointer);  writeNumber(button);
+            }
+            return super.touchDown(screenX, screenY, pointer, button);
+        }
+
+        @Override
+        public boolean touchUp(int screenX, int screenY, int pointer, int button)
+        {
+            if ( !live() )  return false;
+            if ( recording() )
+            {
+                writeRecord(TOUCH_UP);
+                writeNumber(screenX);  writeNumber(screenY);  writeNumber(pointer);  writeNumber(button);
+            }
+            return super.touchUp(screenX, screenY, pointer, button);
+        }
+
+        @Override
+        public boolean touchDragged(int screenX, int screenY, int pointer)
+        {
+            if ( !live() )  return false;
+            if ( recording() )
+            {
+                writeRecord(TOUCH_DRAGGED);
+                writeNumber(screenX);  writeNumber(screenY);  writeNumber(pointer);
+            }
+            return super.touchDragged(screenX, screenY, pointer);
+        }
+
+        @Override
+        public boolean mouseMoved(int screenX, int screenY)
+        {
+            if ( !live() )  return false;
+            if ( recording() )  { writeRecord(MOUSE_MOVED); writeNumber(screenX); writeNumber(screenY); }
+            return super.mouseMoved(screenX, screenY);
+        }
+
+        @Override
+        public boolean scrolled(float amountX, float amountY)
+        {
+            if ( !live() )  return false;
+            if ( recording() )  { writeRecord(SCROLLED); writeFloat(amountX); writeFloat(amountY); }
+            return super.scrolled(amountX, amountY);
+        }
+
+        // the recorded events, past the devices
+        void playKeyDown(int keycode)  { super.keyDown(keycode); }
+        void playKeyUp(int keycode)  { super.keyUp(keycode); }
+        void playKeyTyped(char character)  { super.keyTyped(character); }
+        void playTouchDown(int x, int y, int pointer, int button)  { super.touchDown(x, y, pointer, button); }
+        void playTouchUp(int x, int y, int pointer, int button)  { super.touchUp(x, y, pointer, button); }
+        void playTouchDragged(int x, int y, int pointer)  { super.touchDragged(x, y, pointer); }
+        void playMouseMoved(int x, int y)  { super.mouseMoved(x, y); }
+        void playScrolled(float amountX, float amountY)  { super.scrolled(amountX, amountY); }
+    }
+}
@@ -0,0 +1,109 @@
+package com.starfishcoll;
+
+import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * The state of a level that the user interface shows: the number of starfish left and whether the level is won.
+ * The starfish report themselves (constructor, collect() - the LevelStreamer counts the ones of a level file),
+ * the widgets subscribe and are told only about changes -
+ * nothing is polled or rebuilt on every frame.
+ * The state is attached to the game world stage (user object of its root), so the actors find it without a reference:
+ * GameState.of(stage) - it is null on stages without a level (e.g. the headless benchmarks).
+ */
+
+public class GameState
+{
+    public interface Listener
+    {
+        void gameStateChanged(GameState state);
+    }
+
+    private int starfishRemaining;
+    private boolean won;
+    private Array<Listener> listeners;
+
+    public GameState()
+    {
+        starfishRemaining = 0;
+        won = false;
+        listeners = new Array<Listener>();
+    }
+
+    public static GameState of(Stage stage)
+    {
+        if (stage == null)  return null;
+        Object state = stage.getRoot().getUserObject();
+        return (state instanceof GameState) ? (GameState) state : null;
+    }
+
+    public void attachTo(Stage stage)
+    {
+        stage.getRoot().setUserObject(this);
+    }
+
+
+    // SUBSCRIPTION: the listener is called at once with the current state, then on every change
+
+    public void addListener(Listener listener)
+    {
+        listeners.add(listener);
+        listener.gameStateChanged(this);
+    }
+
+    public void removeListener(Listener listener)
+    {
+        listeners.removeValue(listener, true);
+    }
+
+
+    // CHANGES (called by Starfish)
+
+    void starfishAdded()
+    {
+        starfishRemaining++;
+        notifyListeners();
+    }
+
+    // the starfish of a streamed level: counted when the level is loaded, before their actors exist
+    void starfishPlanned(int count)
+    {
+        starfishRemaining += count;
+        notifyListeners();
+    }
+
+    // the last one collected wins the level
+    void starfishCollected()
+    {
+        starfishRemaining--;
+        if (starfishRemaining == 0)  won = true;
+        notifyListeners();
+    }
+
+    // a checkpoint of the level is restored (see LevelScreen)
+    void restore(int starfishRemaining, boolean won)
+    {
+        this.starfishRemaining = starfishRemaining;
+        this.won = won;
+        notifyListeners();
+    }
+
+    private void notifyListeners()
+    {
+        for (int i = 0; i < listeners.size; i++)
+            listeners.get(i).gameStateChanged(this);
+    }
+
+
+    // QUERIES
+
+    public int getStarfishRemaining()
+    {
+        return starfishRemaining;
+    }
+
+    public boolean isWon()
+    {
+        return won;
+    }
+}
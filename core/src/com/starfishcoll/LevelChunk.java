@@ -0,0 +1,71 @@
+package com.starfishcoll;
+
+/**
+ * A square part of a LevelMap: the records of the actors placed in it (type, position, sign text) in flat arrays,
+ * and - while the chunk is near the camera or parked - the actors made from them (see LevelStreamer)
+ */
+
+class LevelChunk
+{
+    static final byte STARFISH = 0;
+    static final byte ROCK = 1;
+    static final byte SIGN = 2;
+
+    // states of the chunk
+    static final int UNLOADED = 0;      // records only
+    static final int ACTIVE = 1;        // the actors are on the stage
+    static final int PARKED = 2;        // the actors are kept, but not on the stage (they do not act, draw, collide)
+
+    final int cx, cy;
+    int count;
+    byte[] types;
+    float[] xs, ys;
+    String[] texts;                     // sign text, null for the others
+    boolean[] gone;                     // collected starfish: never made again
+    BaseActor[] actors;                 // the actor of the record while the chunk is active or parked
+
+    int state;
+
+    LevelChunk(int cx, int cy)
+    {
+        this.cx = cx;
+        this.cy = cy;
+        count = 0;
+        types = new byte[4];
+        xs = new float[4];
+        ys = new float[4];
+        texts = new String[4];
+        gone = new boolean[4];
+        state = UNLOADED;
+    }
+
+    void addRecord(byte type, float x, float y, String text)
+    {
+        if (count == types.length)  grow();
+        types[count] = type;
+        xs[count] = x;
+        ys[count] = y;
+        texts[count] = text;
+        count++;
+    }
+
+    private void grow()
+    {
+        int capacity = count * 2;
+        byte[] newTypes = new byte[capacity];
+        float[] newXs = new float[capacity];
+        float[] newYs = new float[capacity];
+        String[] newTexts = new String[capacity];
+        boolean[] newGone = new boolean[capacity];
+        System.arraycopy(types, 0, newTypes, 0, count);
+        System.arraycopy(xs, 0, newXs, 0, count);
+        System.arraycopy(ys, 0, newYs, 0, count);
+        System.arraycopy(texts, 0, newTexts, 0, count);
+        System.arraycopy(gone, 0, newGone, 0, count);
+        types = newTypes;
+        xs = newXs;
+        ys = newYs;
+        texts = newTexts;
+        gone = newGone;
+    }
+}
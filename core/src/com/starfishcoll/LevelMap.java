@@ -0,0 +1,202 @@
+package com.starfishcoll;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.StreamUtils;
+
+/**
+ * A level in a text file (e.g. starfish-bay.level in the assets) instead of Java code: the size of the world and
+ * the placement of the actors. The placements are sorted into square chunks of the world, the LevelStreamer
+ * creates the actors of a chunk only when the camera gets near to it.
+ * Only the compact records are kept for the whole level (see LevelChunk), not the actors.
+ *
+ * One entry per line:
+ *   world WIDTH HEIGHT [CHUNK_SIZE]     (first: the size of the world and of its chunks in pixels)
+ *   turtle X Y                          (start position)
+ *   starfish X Y,  rock X Y,  sign X Y "TEXT"
+ *   empty lines and lines starting with # are skipped
+ */
+
+public class LevelMap
+{
+    public static final float DEFAULT_CHUNK_SIZE = 800;
+
+    private float width, height;
+    private float chunkSize;
+    private int chunksX, chunksY;
+    private LevelChunk[] chunks;        // row by row, null: nothing placed in the chunk
+    private float turtleX, turtleY;
+    private int starfishCount;
+
+    private FileHandle file;            // while loading: for the error messages
+    private int lineNumber;
+    private Array<String> words;
+
+    private LevelMap()
+    {
+        turtleX = 20;
+        turtleY = 20;
+        starfishCount = 0;
+        words = new Array<String>();
+    }
+
+    public static LevelMap load(FileHandle file)
+    {
+        LevelMap map = new LevelMap();
+        map.file = file;
+        BufferedReader reader = file.reader(8192, "UTF-8");
+        try
+        {
+            String line;
+            while ( (line = reader.readLine()) != null )
+            {
+                map.lineNumber++;
+                line = line.trim();
+                if ( line.length() == 0 || line.startsWith("#") )  continue;
+                map.parse(line);
+            }
+        }
+        catch (IOException e)
+        {
+            throw new GdxRuntimeException("Error reading level: " + file, e);
+        }
+        finally
+        {
+            StreamUtils.closeQuietly(reader);
+        }
+        if (map.chunks == null)  throw map.error("no world line");
+        map.file = null;
+        map.words = null;
+        return map;
+    }
+
+    private void parse(String line)
+    {
+        if ( !SceneScript.split(line, words) )  throw error("missing closing quote");
+        String kind = words.get(0);
+        if ( kind.equals("world") )
+        {
+            if (chunks != null)  throw error("world is given twice");
+            width = number(1);
+            height = number(2);
+            chunkSize = (words.size > 3) ? number(3) : DEFAULT_CHUNK_SIZE;
+            chunksX = Math.max( 1, (int) Math.ceil(width / chunkSize) );
+            chunksY = Math.max( 1, (int) Math.ceil(height / chunkSize) );
+            chunks = new LevelChunk[chunksX * chunksY];
+            return;
+        }
+        if (chunks == null)  throw error("the world line must be the first");
+
+        if ( kind.equals("turtle") )
+        {
+            turtleX = number(1);
+            turtleY = number(2);
+        }
+        else if ( kind.equals("starfish") )
+        {
+            place(LevelChunk.STARFISH, number(1), number(2), null);
+            starfishCount++;
+        }
+        else if ( kind.equals("rock") )
+            place(LevelChunk.ROCK, number(1), number(2), null);
+        else if ( kind.equals("sign") )
+        {
+            if (words.size < 4)  throw error("missing text of the sign");
+            place(LevelChunk.SIGN, number(1), number(2), words.get(3));
+        }
+        else
+            throw error("unknown entry: " + kind);
+    }
+
+    // the chunk of the position (the actor belongs to the chunk of its bottom left corner)
+    private void place(byte type, float x, float y, String text)
+    {
+        int cx = clampX( (int) Math.floor(x / chunkSize) );
+        int cy = clampY( (int) Math.floor(y / chunkSize) );
+        int index = cy * chunksX + cx;
+        if (chunks[index] == null)
+            chunks[index] = new LevelChunk(cx, cy);
+        chunks[index].addRecord(type, x, y, text);
+    }
+
+    private float number(int w)
+    {
+        if (w >= words.size)  throw error("missing number");
+        try
+        {
+            return Float.parseFloat( words.get(w) );
+        }
+        catch (NumberFormatException e)
+        {
+            throw error("number expected: " + words.get(w));
+        }
+    }
+
+    private GdxRuntimeException error(String message)
+    {
+        return new GdxRuntimeException(file.name() + ":" + lineNumber + ": " + message);
+    }
+
+
+    // QUERIES
+
+    public float getWidth()
+    {
+        return width;
+    }
+
+    public float getHeight()
+    {
+        return height;
+    }
+
+    public float getChunkSize()
+    {
+        return chunkSize;
+    }
+
+    public int getChunksX()
+    {
+        return chunksX;
+    }
+
+    public int getChunksY()
+    {
+        return chunksY;
+    }
+
+    // null if nothing is placed there
+    LevelChunk getChunk(int cx, int cy)
+    {
+        return chunks[cy * chunksX + cx];
+    }
+
+    int clampX(int cx)
+    {
+        return Math.max( 0, Math.min(chunksX - 1, cx) );
+    }
+
+    int clampY(int cy)
+    {
+        return Math.max( 0, Math.min(chunksY - 1, cy) );
+    }
+
+    public float getTurtleX()
+    {
+        return turtleX;
+    }
+
+    public float getTurtleY()
+    {
+        return turtleY;
+    }
+
+    public int getStarfishCount()
+    {
+        return starfishCount;
+    }
+}
@@ -20,6 +20,7 @@
 
 package com.starfishcoll;
 
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.scenes.scene2d.EventListener;
 import com.badlogic.gdx.scenes.scene2d.actions.Actions;
 import com.badlogic.gdx.graphics.Color;
@@ -27,45 +28,111 @@ import com.badlogic.gdx.scenes.scene2d.ui.Label;
 
 import com.badlogic.gdx.scenes.scene2d.ui.Button;
 import com.badlogic.gdx.scenes.scene2d.ui.Button.ButtonStyle;
-import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.scenes.scene2d.utils.TextureRegionDrawable;
 import com.badlogic.gdx.scenes.scene2d.Event;
 import com.badlogic.gdx.scenes.scene2d.InputEvent;
 import com.badlogic.gdx.scenes.scene2d.InputEvent.Type;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.StringBuilder;
 
 
 public class LevelScreen extends BaseScreen
 {
 	private Turtle turtle;		// extended BaseActor
-	private boolean win;
+	private GameState gameState;		// starfish left, win - the HUD listens to it
+	private boolean win;				// the win message is shown
 	private Label starfishLabel;
+	private StringBuilder starfishText = new StringBuilder();	// reused text of starfishLabel
 	private DialogBox dialogBox;
 
+	private static final int OCEAN_BORDER = 24;		// width of the sand around water-border.jpg in pixels
+	private static final float SIGN_DISTANCE = 4;		// the turtle reads a sign within this distance
+	private static final float SIGN_TYPING_SPEED = 40;	// characters per second of a sign text in the dialog box
+
+	// reused every frame for the broadphase results
+	private Array<Rock> nearbyRocks = new Array<Rock>();
+	private Array<Starfish> nearbyStarfishes = new Array<Starfish>();
+	private Array<Sign> nearbySigns = new Array<Sign>();
+	private Array<Sign> viewedSigns = new Array<Sign>();
+
+	// the whirl effects are reused: a collected starfish takes one from here (it returns when it has faded)
+	private ActorPool<Whirlpool> whirlpools;
+
+	// narrow phase of the mass-moving actors (batched movement) - see ContactFinder, ParallelPhysics
+	private ContactFinder<Rock> moverRockContacts = new ContactFinder<Rock>(Rock.class);
+	private ContactFinder<Starfish> moverStarfishContacts = new ContactFinder<Starfish>(Starfish.class);
+
+
+	public static final String DEFAULT_LEVEL = "starfish-bay.level";
+
+	private String levelFile;			// the placement of the actors, streamed around the camera
+	private LevelStreamer levelStreamer;
+
+	// the level at its start: the undo button puts it back in place (see ActorSnapshot)
+	private ActorSnapshot checkpoint = new ActorSnapshot();
+	private LevelStreamer.State streamerCheckpoint = new LevelStreamer.State();
+	private int checkpointStarfish;
+	private boolean checkpointWon;
+	private boolean restoreRequested;
+	private BaseActor youWinMessage;
+
+	public LevelScreen()
+	{
+		this(DEFAULT_LEVEL);
+	}
+
+	public LevelScreen(String levelFile)
+	{
+		super();
+		this.levelFile = levelFile;
+	}
+
+	@Override
+	public void queueAssets()		// asset manifest: decoded in the background before initialize()
+	{
+		AssetCache.queueTexture("water.jpg", false);
+		AssetCache.queueTexture("water-border.jpg", false);
+		for (int i = 1; i <= 6; i++)
+			AssetCache.queueTexture("turtle-" + i + ".png", false);
+		AssetCache.queueTexture("starfish.png", false);
+		AssetCache.queueTexture("rock.png", false);
+		AssetCache.queueTexture("sign.png", false);
+		AssetCache.queueTexture("whirlpool.png", true);
+		AssetCache.queueTexture("dialog-translucent.png", false);
+		AssetCache.queueTexture("undo.png", false);
+		AssetCache.queueTexture("you-win.png", false);
+	}
 
 	@Override
 	public void initialize ()		// called from create() in GameBeta
 	{
-		BaseActor ocean = new BaseActor(0,0, mainStage);	    // background lies here
-		ocean.loadTexture ("water-border.jpg");		// BaseActor method
-		ocean.setSize(1200,900);				// Actor method
+		LevelMap map = LevelMap.load( Gdx.files.internal(levelFile) );
 
-		BaseActor.setWorldBounds(ocean);			// set the size of the game world (for the actors)
+		BaseActor.setWorldBounds( map.getWidth(), map.getHeight() );	// the size of the game world comes from the level file
 
-		turtle = new Turtle(20,20, mainStage);	// for starfish and turtle: everything is included in the constructor!
+		// background lies here: water tiles with a sandy border, only the part under the camera is drawn
+		TiledBackground ocean = new TiledBackground(mainStage);
+		ocean.addLayer( loadRegion("water.jpg"), 1 );
+		ocean.setBorder( loadRegion("water-border.jpg"), OCEAN_BORDER );
 
-		new Starfish(400,400, mainStage);		// not saved in variables, mainStage stores them
-		new Starfish(500,100, mainStage);
-		new Starfish(100,450, mainStage);
-		new Starfish(200,250, mainStage);
+		gameState = new GameState();				// before the starfish: they count themselves in it
+		gameState.attachTo(mainStage);
+		win = false;
 
-		new Rock(200,150, mainStage);
-		new Rock(100,300, mainStage);
-		new Rock(300,350, mainStage);
-		new Rock(450,200, mainStage);
+		turtle = new Turtle( map.getTurtleX(), map.getTurtleY(), mainStage );	// for turtle: everything is included in the constructor!
 
-		win = false;
+		// starfish, rocks and signs are made by the streamer when the camera gets near to them (see LevelStreamer)
+		levelStreamer = new LevelStreamer(map, mainStage);
+
+		whirlpools = new ActorPool<Whirlpool>(mainStage, 16, 256)
+		{
+			@Override
+			protected Whirlpool newObject()
+			{
+				return new Whirlpool(0, 0, mainStage);
+			}
+		};
 
 		// initialize label for ui text information
 		starfishLabel = new Label("Starfish Left:", BaseGame.labelStyle);
@@ -78,8 +145,7 @@ public class LevelScreen extends BaseScreen
 
 		// image -> style
 		ButtonStyle buttonStyle = new ButtonStyle();		// style
-		Texture buttonTex = new Texture( Gdx.files.internal("undo.png") );		// Texture type
-		TextureRegion buttonRegion = new TextureRegion( buttonTex );		// TextureRegion type
+		TextureRegion buttonRegion = loadRegion("undo.png");		// TextureRegion type - shared (atlas), released with the screen
 		buttonStyle.up = new TextureRegionDrawable( buttonRegion );		// a TextureRegion that implements Drawable interface
 
 		// button with style
@@ -95,7 +161,7 @@ public class LevelScreen extends BaseScreen
 					public boolean handle(Event e) {
 						if (!(e instanceof InputEvent) || !((InputEvent) e).getType().equals(Type.touchDown))
 							return false;
-						StarfishGame.setActiveScreen(new LevelScreen());	// InputEvent + touchDown (= mouseclick) -> set LevelScreen as active
+						restoreRequested = true;	// InputEvent + touchDown (= mouseclick) -> the level is set back to its start (next tick)
 						return false;
 					}
 				}
@@ -107,11 +173,7 @@ public class LevelScreen extends BaseScreen
 		uiTable.add().expandX().expandY();		// an empty cell in the middle which pushes the widgets to the edges by using expands
 		uiTable.add(restartButton).top();
 
-		// Initialize game signs
-		Sign sign1 = new Sign(20,400, mainStage);
-		sign1.setText("West Starfish Bay");
-		Sign sign2 = new Sign(600,300, mainStage);
-		sign2.setText("East Starfish Bay");
+		// dialog box for the signs
 		dialogBox = new DialogBox(0,0, uiStage);
 		dialogBox.setBackgroundColor( Color.TAN );
 		dialogBox.setFontColor( Color.BROWN );
@@ -121,64 +183,211 @@ public class LevelScreen extends BaseScreen
 		dialogBox.setVisible(false);
 		uiTable.row();
 		uiTable.add(dialogBox).colspan(3);
+
+		// the first chunks around the start
+		turtle.alignCamera();
+		levelStreamer.update( mainStage.getCamera() );
+
+		// the HUD follows the game state: the label is laid out again only when the number changes
+		gameState.addListener(
+				new GameState.Listener() {
+					@Override
+					public void gameStateChanged(GameState state) {
+						showStarfishCount( state.getStarfishRemaining() );
+						if ( state.isWon() && !win )
+						{
+							win = true;
+							showWinMessage();
+						}
+					}
+				}
+		);
+
+		saveCheckpoint();
+	}
+
+	// show the actual number of starfishes left - .setScale can be used to change size here
+	// no new String: the text is built in a reused StringBuilder (the Label copies it into its own)
+	private void showStarfishCount(int count)
+	{
+		starfishText.setLength(0);
+		starfishText.append("Starfish Left: ").append(count);
+		starfishLabel.setText(starfishText);
+	}
+
+	// If every Starfish was collected then the "you win" subscript appears then fades in
+	private void showWinMessage()
+	{
+		youWinMessage = new BaseActor(0, 0, uiStage);	// draw it on the stage with fix camera
+		youWinMessage.loadTexture("you-win.png");
+		youWinMessage.centerAtPosition(400, 300);
+		youWinMessage.setOpacity(0);
+		youWinMessage.addAction(Actions.delay(1));
+		youWinMessage.addAction(Actions.after(Actions.fadeIn(youWinMessage.fadingTime)));
+	}
+
+	// CHECKPOINTS: the state of the actors, the chunks and the game state - restored in place, nothing is rebuilt
+
+	public void saveCheckpoint()
+	{
+		checkpoint.capture(mainStage);
+		levelStreamer.saveState(streamerCheckpoint, checkpoint);
+		checkpointStarfish = gameState.getStarfishRemaining();
+		checkpointWon = gameState.isWon();
+	}
+
+	public void restoreCheckpoint()
+	{
+		levelStreamer.restoreState(streamerCheckpoint);		// first: it drops the actors made since the checkpoint
+		checkpoint.restore();
+
+		// the dialog box shows the sign being read at the checkpoint (if any)
+		dialogBox.clearActions();
+		dialogBox.setText( " " );
+		dialogBox.setVisible( false );
+		viewedSigns.clear();
+		Array<Sign> signs = BaseActor.getList(mainStage, Sign.class);
+		for (int i = 0; i < signs.size; i++)
+			if ( signs.get(i).isViewing() )
+			{
+				dialogBox.setText( signs.get(i).getText() );
+				dialogBox.setVisible( true );
+				viewedSigns.add( signs.get(i) );
+			}
+
+		if (youWinMessage != null)
+		{
+			youWinMessage.remove();
+			youWinMessage = null;
+		}
+		win = false;
+		gameState.restore(checkpointStarfish, checkpointWon);		// the HUD listens (and shows the win message again)
+		turtle.alignCamera();
+	}
+
+	// the undo button asks for the checkpoint inside an input event: it comes back after the input of the tick,
+	// before the stages act - at the same tick live and played back (GameInput)
+	@Override
+	protected void beforeAct()
+	{
+		if (restoreRequested)
+		{
+			restoreRequested = false;
+			restoreCheckpoint();
+		}
 	}
 
 	@Override
 	public void update (float dt)		// called from render() in BaseScreen
 	{
-		// show the actual number of starfishes left - .setScale can be used to change size here
-		starfishLabel.setText("Starfish Left: " + BaseActor.count(mainStage, "Starfish"));
+		// the actors near the camera (aligned to the turtle in its act()) are on the stage, the far ones are parked
+		levelStreamer.update( mainStage.getCamera() );
 
-		// check that turtle does not overlap with any rock
-		for ( BaseActor rockActor : BaseActor.getList(mainStage, "Rock") )
-			turtle.preventOverlap(rockActor);
+		// check that turtle does not overlap with any rock - narrow test only on the rocks around it
+		turtle.getNearby(Rock.class, 0, nearbyRocks);
+		for (int i = 0; i < nearbyRocks.size; i++)
+			turtle.preventOverlap(nearbyRocks.get(i));
 
 		// if Turtle gets a Starfish, start a special animation: it fades out in a whirl
-		for (BaseActor starfishActor : BaseActor.getList(mainStage, "Starfish"))
+		turtle.getNearby(Starfish.class, 0, nearbyStarfishes);
+		for (int i = 0; i < nearbyStarfishes.size; i++)
 		{
-			Starfish starfish = (Starfish) starfishActor;        // cast in order to reach Starfish methods
+			Starfish starfish = nearbyStarfishes.get(i);
 			if (turtle.overlaps(starfish) && !starfish.isCollected())
-			{
-				starfish.collect();
+				collectStarfish(starfish);
+		}
+
+		// the mass-moving actors (e.g. a school of fish) do not swim through rocks and take the starfish they touch
+		// the pairs are found first (in parallel if enabled), then resolved here one by one in a fixed order
+		Array<BaseActor> movers = ActorRegistry.forStage(mainStage).getMovementSystem().getActors();
+		if (movers.size > 0)
+		{
+			moverRockContacts.find(mainStage, movers);
+			for (int i = 0; i < moverRockContacts.size(); i++)
+				moverRockContacts.getMover(i).preventOverlap( moverRockContacts.getTarget(i) );
 
-				Whirlpool whirl = new Whirlpool(0, 0, mainStage);        // whirl effect upon Starfish
-				whirl.centerAtActor(starfish);
-				whirl.setOpacity(0.5f);
+			moverStarfishContacts.find(mainStage, movers);
+			for (int i = 0; i < moverStarfishContacts.size(); i++)
+			{
+				Starfish starfish = moverStarfishContacts.getTarget(i);
+				if ( !starfish.isCollected() )
+					collectStarfish(starfish);
 			}
 		}
 
 		// Check: turtle is near a sign?
-		for ( BaseActor signActor : BaseActor.getList(mainStage, "Sign") )
+		turtle.getNearby(Sign.class, SIGN_DISTANCE, nearbySigns);
+		for (int i = 0; i < nearbySigns.size; i++)
 		{
-			Sign sign = (Sign) signActor;
+			Sign sign = nearbySigns.get(i);
 			turtle.preventOverlap(sign);
-			boolean nearby = turtle.isWithinDistance(4, sign);
+			boolean nearby = turtle.isWithinDistance(SIGN_DISTANCE, sign);
 			if ( nearby && !sign.isViewing() )
 			{
-				dialogBox.setText( sign.getText() );  // Sign-text -> Dialogbox-text, is visible, is viewing
+				dialogBox.clearActions();		// Sign-text -> Dialogbox-text (typed in), is visible, is viewing
+				dialogBox.addAction( SceneActions.typeText(sign.getText(), SIGN_TYPING_SPEED) );
 				dialogBox.setVisible( true );
 				sign.setViewing( true );
+				viewedSigns.add( sign );
 			}
-			if (sign.isViewing() && !nearby)
+		}
+		// signs being viewed may already be out of the queried area: check them separately
+		for (int i = viewedSigns.size - 1; i >= 0; i--)
+		{
+			Sign sign = viewedSigns.get(i);
+			if ( !turtle.isWithinDistance(SIGN_DISTANCE, sign) )
 			{
+				dialogBox.clearActions();
 				dialogBox.setText( " " );		// already not nearby: opposite to the upper
 				dialogBox.setVisible( false );
 				sign.setViewing( false );
+				viewedSigns.removeIndex(i);
 			}
 		}
 
+	}
 
-		// If every Starfish was collected then the "you win" subscript appears then fades in
-		if ( BaseActor.count(mainStage, "Starfish") == 0 && !win )
-		{
-			win = true;
-			BaseActor youWinMessage = new BaseActor(0, 0, uiStage);	// draw it on the stage with fix camera
-			youWinMessage.loadTexture("you-win.png");
-			youWinMessage.centerAtPosition(400, 300);
-			youWinMessage.setOpacity(0);
-			youWinMessage.addAction(Actions.delay(1));
-			youWinMessage.addAction(Actions.after(Actions.fadeIn(youWinMessage.fadingTime)));
-		}
+	// restart: the actors parked by the old streamer are not on the stage - they go after the new level is built
+	@Override
+	protected void rebuild()
+	{
+		LevelStreamer oldStreamer = levelStreamer;
+		ActorSnapshot oldCheckpoint = checkpoint;
+		checkpoint = new ActorSnapshot();
+		viewedSigns.clear();
+		restoreRequested = false;
+		youWinMessage = null;
+		super.rebuild();
+		if (oldStreamer != null)  oldStreamer.dispose();
+		oldCheckpoint.clear();			// the actors removed since the checkpoint release their animations
+	}
+
+	@Override
+	public void dispose()
+	{
+		checkpoint.clear();
+		if (levelStreamer != null)  levelStreamer.dispose();		// the parked actors are not on the stage
+		super.dispose();
+	}
+
+	// for tools outside the package (streaming statistics in the headless runner)
+	public LevelStreamer getLevelStreamer()
+	{
+		return levelStreamer;
+	}
+
+	// for tools outside the package (pool statistics in the headless runner)
+	public ActorPool<Whirlpool> getWhirlpoolPool()
+	{
+		return whirlpools;
+	}
+
+	private void collectStarfish(Starfish starfish)
+	{
+		starfish.collect();
 
+		Whirlpool whirl = whirlpools.obtain();        // whirl effect upon Starfish
+		whirl.centerAtActor(starfish);
+		whirl.setOpacity(0.5f);
 	}
 }
\ No newline at end of file
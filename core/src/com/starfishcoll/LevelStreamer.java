@@ -0,0 +1,252 @@
+package com.starfishcoll;
+
+import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.BooleanArray;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Keeps only the neighbourhood of the camera of a LevelMap alive on the stage:
+ * - the chunks the view (+ half a chunk) touches are active: their actors are on the stage
+ * - an active chunk that gets farther than one more chunk from the view is parked: its actors leave the stage
+ *   (no act, draw or collision test), but they are kept to come back quickly
+ * - over MAX_PARKED_CHUNKS the oldest parked chunk is unloaded: its actors are dropped, only the records remain
+ *   (collected starfish are marked in the records, so they never come back)
+ * So the actors, their act() and the broadphase scale with the view, not with the size of the level.
+ * Checkpoints: saveState() keeps the bookkeeping of the chunks (and puts the parked actors into the ActorSnapshot
+ * of the stage), restoreState() sets it back - the actors made since then are dropped, the saved ones return.
+ */
+
+public class LevelStreamer
+{
+    public static final int MAX_PARKED_CHUNKS = 8;
+
+    private LevelMap map;
+    private Stage stage;
+    private Array<LevelChunk> activeChunks;
+    private Array<LevelChunk> parkedChunks;        // the oldest first
+    private int loadedChunkCount;                  // statistics: chunks made from records
+
+    public LevelStreamer(LevelMap map, Stage stage)
+    {
+        this.map = map;
+        this.stage = stage;
+        activeChunks = new Array<LevelChunk>(false, 16);
+        parkedChunks = new Array<LevelChunk>(true, MAX_PARKED_CHUNKS + 1);
+        loadedChunkCount = 0;
+
+        // every starfish of the level counts from the start, also the ones not made yet
+        GameState state = GameState.of(stage);
+        if (state != null)  state.starfishPlanned( map.getStarfishCount() );
+    }
+
+    // called on every tick (and once when the level is built), after the camera is aligned
+    public void update(Camera camera)
+    {
+        float zoom = (camera instanceof OrthographicCamera) ? ((OrthographicCamera) camera).zoom : 1;
+        float size = map.getChunkSize();
+        float halfWidth = camera.viewportWidth * zoom / 2 + size / 2;
+        float halfHeight = camera.viewportHeight * zoom / 2 + size / 2;
+        int minX = map.clampX( (int) Math.floor( (camera.position.x - halfWidth) / size ) );
+        int maxX = map.clampX( (int) Math.floor( (camera.position.x + halfWidth) / size ) );
+        int minY = map.clampY( (int) Math.floor( (camera.position.y - halfHeight) / size ) );
+        int maxY = map.clampY( (int) Math.floor( (camera.position.y + halfHeight) / size ) );
+
+        // the ones around the view: active (only the chunks of the view range are visited)
+        for (int cy = minY; cy <= maxY; cy++)
+            for (int cx = minX; cx <= maxX; cx++)
+            {
+                LevelChunk chunk = map.getChunk(cx, cy);
+                if (chunk != null && chunk.state != LevelChunk.ACTIVE)
+                    activate(chunk);
+            }
+
+        // one chunk farther: parked (not at once at the border of the range - no flickering when the camera turns back)
+        for (int i = activeChunks.size - 1; i >= 0; i--)
+        {
+            LevelChunk chunk = activeChunks.get(i);
+            if (chunk.cx < minX - 1 || chunk.cx > maxX + 1 || chunk.cy < minY - 1 || chunk.cy > maxY + 1)
+            {
+                activeChunks.removeIndex(i);
+                park(chunk);
+            }
+        }
+
+        while (parkedChunks.size > MAX_PARKED_CHUNKS)
+            unload( parkedChunks.removeIndex(0) );
+    }
+
+    private void activate(LevelChunk chunk)
+    {
+        if (chunk.state == LevelChunk.PARKED)
+        {
+            parkedChunks.removeValue(chunk, true);
+            for (int i = 0; i < chunk.count; i++)
+                if (chunk.actors[i] != null)  chunk.actors[i].attach(stage);
+        }
+        else
+            load(chunk);
+        chunk.state = LevelChunk.ACTIVE;
+        activeChunks.add(chunk);
+    }
+
+    // the actors from the records
+    private void load(LevelChunk chunk)
+    {
+        if (chunk.actors == null)  chunk.actors = new BaseActor[chunk.count];
+        for (int i = 0; i < chunk.count; i++)
+        {
+            if (chunk.gone[i])  continue;
+            float x = chunk.xs[i];
+            float y = chunk.ys[i];
+            switch (chunk.types[i])
+            {
+                case LevelChunk.STARFISH:
+                    chunk.actors[i] = new Starfish(x, y, stage, false);     // counted by the constructor of the streamer
+                    break;
+                case LevelChunk.ROCK:
+                    chunk.actors[i] = new Rock(x, y, stage);
+                    break;
+                case LevelChunk.SIGN:
+                    Sign sign = new Sign(x, y, stage);
+                    sign.setText( chunk.texts[i] );
+                    chunk.actors[i] = sign;
+                    break;
+            }
+        }
+        loadedChunkCount++;
+    }
+
+    // the actors leave the stage, but keep their animations; a collected starfish is gone for good
+    private void park(LevelChunk chunk)
+    {
+        for (int i = 0; i < chunk.count; i++)
+        {
+            BaseActor actor = chunk.actors[i];
+            if (actor == null)  continue;
+            boolean collected = (actor instanceof Starfish) && ((Starfish) actor).isCollected();
+            if ( collected || actor.getStage() == null )
+            {
+                chunk.gone[i] = true;
+                chunk.actors[i] = null;
+                actor.remove();         // (if it is still fading out)
+            }
+            else
+                actor.detach();
+        }
+        chunk.state = LevelChunk.PARKED;
+        parkedChunks.add(chunk);
+    }
+
+    private void unload(LevelChunk chunk)
+    {
+        for (int i = 0; i < chunk.count; i++)
+        {
+            if (chunk.actors[i] == null)  continue;
+            chunk.actors[i].releaseAnimations();
+            chunk.actors[i] = null;
+        }
+        chunk.state = LevelChunk.UNLOADED;
+    }
+
+    // CHECKPOINTS
+
+    // the state of every chunk and its records - the parked actors are added to the snapshot (the ones on the stage
+    // must already be in it: ActorSnapshot.capture() first)
+    public void saveState(State state, ActorSnapshot snapshot)
+    {
+        state.chunkStates.clear();
+        state.gone.clear();
+        state.actors.clear();
+        state.parkedOrder.clear();
+        for (int cy = 0; cy < map.getChunksY(); cy++)
+            for (int cx = 0; cx < map.getChunksX(); cx++)
+            {
+                LevelChunk chunk = map.getChunk(cx, cy);
+                if (chunk == null)  continue;
+                state.chunkStates.add(chunk.state);
+                for (int i = 0; i < chunk.count; i++)
+                {
+                    BaseActor actor = (chunk.actors == null) ? null : chunk.actors[i];
+                    state.gone.add( chunk.gone[i] );
+                    state.actors.add(actor);
+                    if (actor != null && chunk.state == LevelChunk.PARKED)  snapshot.add(actor);
+                }
+            }
+        for (int i = 0; i < parkedChunks.size; i++)
+            state.parkedOrder.add( parkedChunks.get(i).cx, parkedChunks.get(i).cy );
+    }
+
+    // before ActorSnapshot.restore(): that one puts the saved actors back onto the stage (or parks them)
+    public void restoreState(State state)
+    {
+        if (state.chunkStates.size == 0)  return;
+        activeChunks.clear();
+        parkedChunks.clear();
+        int record = 0, chunkIndex = 0;
+        for (int cy = 0; cy < map.getChunksY(); cy++)
+            for (int cx = 0; cx < map.getChunksX(); cx++)
+            {
+                LevelChunk chunk = map.getChunk(cx, cy);
+                if (chunk == null)  continue;
+                for (int i = 0; i < chunk.count; i++)
+                {
+                    BaseActor saved = state.actors.get(record);
+                    BaseActor current = (chunk.actors == null) ? null : chunk.actors[i];
+                    if (current != null && current != saved)        // made from the record after the checkpoint
+                    {
+                        if ( current.isRegistered() )  current.remove();
+                        else  current.releaseAnimations();
+                    }
+                    if (chunk.actors != null)  chunk.actors[i] = saved;
+                    chunk.gone[i] = state.gone.get(record);
+                    record++;
+                }
+                chunk.state = state.chunkStates.get(chunkIndex++);
+                if (chunk.state == LevelChunk.ACTIVE)  activeChunks.add(chunk);
+            }
+        for (int i = 0; i < state.parkedOrder.size; i += 2)
+            parkedChunks.add( map.getChunk( state.parkedOrder.get(i), state.parkedOrder.get(i + 1) ) );
+    }
+
+    // the bookkeeping of the chunks at a checkpoint (the chunks in row order, their records one after the other)
+    public static class State
+    {
+        private IntArray chunkStates = new IntArray();
+        private BooleanArray gone = new BooleanArray();
+        private Array<BaseActor> actors = new Array<BaseActor>();      // null: no actor for the record then
+        private IntArray parkedOrder = new IntArray();                 // cx, cy of the parked chunks, oldest first
+    }
+
+    // the parked actors are not on the stage: they are released here, the active ones with the stage
+    public void dispose()
+    {
+        while (parkedChunks.size > 0)
+            unload( parkedChunks.pop() );
+    }
+
+
+    // STATISTICS
+
+    public int getActiveChunkCount()
+    {
+        return activeChunks.size;
+    }
+
+    public int getParkedChunkCount()
+    {
+        return parkedChunks.size;
+    }
+
+    public int getLoadedChunkCount()
+    {
+        return loadedChunkCount;
+    }
+
+    public LevelMap getMap()
+    {
+        return map;
+    }
+}
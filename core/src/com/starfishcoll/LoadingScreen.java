@@ -0,0 +1,46 @@
+package com.starfishcoll;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.scenes.scene2d.ui.Label;
+
+/**
+ * A lightweight screen shown while the assets of the next screen are decoded in the background
+ * only the already loaded font is used here; when everything is resident the next screen is swapped in
+ */
+
+public class LoadingScreen extends BaseScreen
+{
+    private BaseScreen nextScreen;
+    private Label progressLabel;
+    private int shownPercent = -1;
+
+    public LoadingScreen(BaseScreen next)
+    {
+        super();
+        nextScreen = next;
+    }
+
+    @Override
+    public void initialize()
+    {
+        progressLabel = new Label("Loading...", BaseGame.labelStyle);
+        progressLabel.setColor( Color.CYAN );
+        uiTable.add(progressLabel);
+    }
+
+    @Override
+    public void update(float dt)
+    {
+        boolean finished = AssetCache.updateLoading();     // a time slice of the AssetManager
+
+        int percent = (int) (AssetCache.getLoadingProgress() * 100);
+        if (percent != shownPercent)
+        {
+            shownPercent = percent;
+            progressLabel.setText("Loading... " + percent + "%");
+        }
+
+        if (finished && BaseGame.isActiveScreen(this))     // (only once: the screen may still draw this frame)
+            BaseGame.completeScreenSwitch(nextScreen);
+    }
+}
@@ -22,6 +22,13 @@ import com.badlogic.gdx.scenes.scene2d.InputEvent.Type;
 public class MenuScreen extends BaseScreen
 {
 
+    @Override
+    public void queueAssets()       // asset manifest: decoded in the background before initialize()
+    {
+        AssetCache.queueTexture("water-border.jpg", false);
+        AssetCache.queueTexture("starfish-collector.png", false);
+    }
+
     @Override
     public void initialize()
     {
@@ -53,7 +60,7 @@ public class MenuScreen extends BaseScreen
                     public boolean handle(Event e) {
                         if (!(e instanceof InputEvent) || !((InputEvent) e).getType().equals(Type.touchDown))
                             return false;
-                        StarfishGame.setActiveScreen(new StoryScreen());
+                        StarfishGame.setActiveScreen( StarfishGame.STORY );
                         return false;
                     }
                 }
@@ -90,9 +97,9 @@ public class MenuScreen extends BaseScreen
     @Override
     public boolean keyDown(int keyCode)         // keyboard versions for the 2 buttons
     {
-        if (Gdx.input.isKeyPressed(Keys.ENTER))
-            StarfishGame.setActiveScreen( new LevelScreen() );
-        if (Gdx.input.isKeyPressed(Keys.ESCAPE))
+        if (keyCode == Keys.ENTER)          // the key of the event (also when it is played back by GameInput)
+            StarfishGame.setActiveScreen( StarfishGame.LEVEL );
+        if (keyCode == Keys.ESCAPE)
             Gdx.app.exit();
         return false;
     }
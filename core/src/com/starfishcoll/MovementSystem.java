@@ -0,0 +1,250 @@
+package com.starfishcoll;
+
+import java.util.concurrent.RecursiveAction;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Part of Game FW   implemented during creating Starfish Collector game
+ *   Batched movement of many actors of a stage (structure of arrays)
+ *
+ *        An actor registered here (BaseActor.setBatchedMovement(true)) is not moved by its own applyPhysics() -
+ *        that call returns at once - but by update(), once a tick, after the stage has acted:
+ *          - the arrays hold position, velocity, acceleration, max speed and deceleration of every registered actor;
+ *            BaseActor copies its values here whenever one of them is set (push), so there is no gather step
+ *          - integrate:  one loop over the arrays, the same float operations as BaseActor.applyPhysics()
+ *          - write back: only the new position goes to the actors (SpatialHash, drawing) - velocity and acceleration
+ *            stay in the arrays, the movement methods of BaseActor read them from here when called (pull)
+ *        So the results are identical to applyPhysics(), only the moment differs: the registered actors move at
+ *        the end of the act phase, not in the middle of their own act(). It suits the actors that do nothing
+ *        with their new position in act() (schools of fish...) - not the Turtle, which turns and aligns the camera.
+ *        With ParallelPhysics enabled the integration loop runs on several threads, the write back stays serial.
+ */
+
+public class MovementSystem
+{
+    private Array<BaseActor> actors;        // the registered actors - index i belongs to slot i of the arrays
+    private float[] x, y;                   // position
+    private float[] vx, vy;                 // velocity
+    private float[] ax, ay;                 // acceleration of this tick
+    private float[] maxSpeed, deceleration;
+    private boolean writingBack;            // the actors are being updated from the arrays - no sync needed
+
+    // the rare case of a standing actor starting to move is left to Vector2 itself (the same result to the bit)
+    private Vector2 scratchVelocity, scratchAcceleration;
+
+    public MovementSystem()
+    {
+        actors = new Array<BaseActor>(false, 64, BaseActor.class);
+        allocate(64);
+        scratchVelocity = new Vector2();
+        scratchAcceleration = new Vector2();
+    }
+
+    public int size()
+    {
+        return actors.size;
+    }
+
+
+    // REGISTRATION (through BaseActor.setBatchedMovement)
+
+    void add(BaseActor actor)
+    {
+        if (actor.movementIndex >= 0)  return;
+        if (actors.size == x.length)  allocate(x.length * 2);
+        actor.movementIndex = actors.size;
+        actors.add(actor);
+        push(actor);
+    }
+
+    // the last actor takes the place of the removed one, so the arrays stay dense
+    void remove(BaseActor actor)
+    {
+        int index = actor.movementIndex;
+        if (index < 0)  return;
+        pull(actor);                        // the actor moves by itself from now on: its vectors must be current
+        actors.removeIndex(index);          // unordered Array: the last element is moved to index
+        actor.movementIndex = -1;
+        if (index < actors.size)
+        {
+            BaseActor moved = actors.get(index);
+            moved.movementIndex = index;
+            push(moved);
+        }
+    }
+
+    // copy the movement values of the actor into its slot - called by BaseActor after it has set one of them
+    // (BaseActor pulls before changing its vectors, so they are current here)
+    void push(BaseActor actor)
+    {
+        int i = actor.movementIndex;
+        if (i < 0)  return;
+        x[i] = actor.getX();
+        y[i] = actor.getY();
+        vx[i] = actor.velocityVec.x;
+        vy[i] = actor.velocityVec.y;
+        ax[i] = actor.accelerationVec.x;
+        ay[i] = actor.accelerationVec.y;
+        maxSpeed[i] = actor.maxSpeed;
+        deceleration[i] = actor.deceleration;
+    }
+
+    // the actor has been moved (setPosition, moveBy, preventOverlap...) - not by the write back of update()
+    void pushPosition(BaseActor actor)
+    {
+        int i = actor.movementIndex;
+        if (i < 0 || writingBack)  return;
+        x[i] = actor.getX();
+        y[i] = actor.getY();
+    }
+
+    // bring the velocity and acceleration vectors of the actor up to date - before BaseActor reads or changes them
+    void pull(BaseActor actor)
+    {
+        int i = actor.movementIndex;
+        if (i < 0)  return;
+        actor.velocityVec.set( vx[i], vy[i] );
+        actor.accelerationVec.set( ax[i], ay[i] );
+    }
+
+
+    // the registered actors in slot order (live view, do not modify)
+    public Array<BaseActor> getActors()
+    {
+        return actors;
+    }
+
+
+    // ONE TICK
+
+    public void update(float dt)
+    {
+        int n = actors.size;
+        if (n == 0)  return;
+
+        // the slots are independent: with parallel physics the loop is split among the threads
+        if ( ParallelPhysics.useFor(n) )
+            ParallelPhysics.getPool().invoke( new IntegrateTask(0, n, dt) );
+        else
+            integrate(0, n, dt, scratchVelocity, scratchAcceleration);
+
+        // write back the position (setPosition keeps the SpatialHash and the boundary cache up to date)
+        // and reset the acceleration (accelerate only while key is pressed)
+        writingBack = true;
+        BaseActor[] items = actors.items;
+        for (int i = 0; i < n; i++)
+        {
+            items[i].setPosition( x[i], y[i] );
+            ax[i] = 0;
+            ay[i] = 0;
+        }
+        writingBack = false;
+    }
+
+    // the arithmetic of BaseActor.applyPhysics() for the slots [from, to) - see the steps there
+    // (the scratch vectors are passed in: every parallel task has its own)
+    private void integrate(int from, int to, float dt, Vector2 scratchVelocity, Vector2 scratchAcceleration)
+    {
+        for (int i = from; i < to; i++)
+        {
+            // apply acceleration to velocity
+            float velX = vx[i] + ax[i] * dt;
+            float velY = vy[i] + ay[i] * dt;
+            float length2 = velX * velX + velY * velY;
+            float speed = (float) Math.sqrt(length2);                          // Vector2.len()
+
+            // decrease speed (decelerate) when not accelerating
+            // (len() == 0 exactly when len2() == 0: the square root of a positive float is never rounded to 0)
+            if (ax[i] * ax[i] + ay[i] * ay[i] == 0)  speed -= deceleration[i] * dt;
+
+            // keep speed within set bounds
+            speed = MathUtils.clamp(speed, 0, maxSpeed[i]);
+
+            // setSpeed(speed)
+            if (length2 == 0 && speed == 0 && Float.floatToRawIntBits( ax[i] ) == 0 && Float.floatToRawIntBits( ay[i] ) == 0)
+            {
+                // a standing actor without acceleration: Vector2 would turn (0, 0) by atan2(0, 0) = 0 degrees
+                // the result is (+0, +0) - known without the (slow) trigonometry
+                velX = 0;
+                velY = 0;
+            }
+            else if (length2 == 0)
+            {
+                scratchAcceleration.set( ax[i], ay[i] );
+                scratchVelocity.set(speed, 0).setAngleDeg( scratchAcceleration.angleDeg() );
+                velX = scratchVelocity.x;
+                velY = scratchVelocity.y;
+            }
+            else
+            {
+                float speed2 = speed * speed;                                   // Vector2.setLength2()
+                if (length2 != speed2)
+                {
+                    float scale = (float) Math.sqrt(speed2 / length2);
+                    velX *= scale;
+                    velY *= scale;
+                }
+            }
+            vx[i] = velX;
+            vy[i] = velY;
+
+            // apply velocity -> move
+            x[i] += velX * dt;
+            y[i] += velY * dt;
+        }
+    }
+
+
+    // a range of slots - halved until it is small enough
+    private class IntegrateTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private int from, to;
+        private float dt;
+
+        IntegrateTask(int from, int to, float dt)
+        {
+            this.from = from;
+            this.to = to;
+            this.dt = dt;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from <= ParallelPhysics.TASK_ITEMS)
+            {
+                integrate(from, to, dt, new Vector2(), new Vector2());
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll( new IntegrateTask(from, middle, dt), new IntegrateTask(middle, to, dt) );
+        }
+    }
+
+
+    // HELPERS
+
+    private void allocate(int capacity)
+    {
+        x = grow(x, capacity);
+        y = grow(y, capacity);
+        vx = grow(vx, capacity);
+        vy = grow(vy, capacity);
+        ax = grow(ax, capacity);
+        ay = grow(ay, capacity);
+        maxSpeed = grow(maxSpeed, capacity);
+        deceleration = grow(deceleration, capacity);
+    }
+
+    private static float[] grow(float[] array, int capacity)
+    {
+        float[] bigger = new float[capacity];
+        if (array != null)  System.arraycopy(array, 0, bigger, 0, array.length);
+        return bigger;
+    }
+}
@@ -0,0 +1,49 @@
+package com.starfishcoll;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Part of Game FW   implemented during creating Starfish Collector game
+ *   Switch and thread pool of the optional parallel physics
+ *
+ *        When enabled, the work that only reads shared state is split among the cores (ForkJoinPool):
+ *          - the integration loop of the MovementSystem (every slot of the arrays is independent)
+ *          - the boundary refresh and the narrow tests of a ContactFinder (the SpatialHash is only read)
+ *        Everything that changes shared state stays on the render thread and runs after the parallel part, in a fixed
+ *        order: writing back the positions (SpatialHash), pushing actors apart, collecting, spawning new actors.
+ *        The results do not depend on the number of threads, so a run with a fixed seed gives the same game
+ *        with the parallel physics switched on or off.
+ *        Small workloads (below MIN_PARALLEL_ITEMS) are done serially - the tasks would cost more than they save.
+ */
+
+public class ParallelPhysics
+{
+    public static final int MIN_PARALLEL_ITEMS = 2048;     // work under this size is not worth splitting
+    static final int TASK_ITEMS = 1024;                     // the size of the smallest task
+
+    private static boolean enabled = false;
+    private static ForkJoinPool pool;                       // created on first use, daemon threads
+
+    public static void setEnabled(boolean parallel)
+    {
+        enabled = parallel;
+    }
+
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    // should a job of the given size be split among threads?
+    static boolean useFor(int items)
+    {
+        return enabled && items >= MIN_PARALLEL_ITEMS;
+    }
+
+    static ForkJoinPool getPool()
+    {
+        if (pool == null)
+            pool = new ForkJoinPool();          // one worker per core
+        return pool;
+    }
+}
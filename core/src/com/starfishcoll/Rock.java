@@ -11,5 +11,6 @@ public class Rock extends BaseActor
 
         // for collision detection
         setBoundaryPolygon(8);
+        setBoundaryImmutable(true);     // never moves: its boundary is computed only once
     }
 }
\ No newline at end of file
@@ -1,69 +1,465 @@
 package com.starfishcoll;
 
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.scenes.scene2d.Action;
 import com.badlogic.gdx.scenes.scene2d.Actor;
-import java.util.ArrayList;
+import com.badlogic.gdx.scenes.scene2d.actions.TemporalAction;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.ObjectIntMap;
 
 /**
  * The manager of scene segments: a list of actions of actors ~ a movie
  * The engine is the act() method...
+ * The segments are compiled into a timeline (flat arrays sorted by start time): the scene clock starts the segments
+ * when their time comes and plays their actions itself - nothing is polled on the actors.
+ * - addSegment(): starts after everything added before has ended
+ * - addParallelSegment(): starts together with the previous segment (parallel tracks, e.g. several actors moving)
+ * - a hold (SceneActions.pause()) stops the clock until resume()
+ * - seek(time): jump to any time, also backwards - the start states of the actors are restored and the segments
+ *   before the time are replayed (the segment at the time is found by binary search); skip() jumps to the end
+ *   (a seek resets every captured property of the actors, also the ones changed by their own actions)
+ * - setScript(): the segments are read from a SceneScript only LOOKAHEAD segments ahead of the clock and the completed
+ *   ones are dropped, so the timeline holds a window of the scene (a seek reads the script again from its start)
  * 20/01/2022
  */
 
 public class Scene extends Actor
 {
-    private ArrayList<SceneSegment> segmentList;
-    private int index;
+    private static final int STATE_SIZE = 12;          // floats per actor in the start state (see captureState)
+    private static final float SEEK_STEP = 1 / 60f;     // composite actions are replayed frame by frame
+    private static final int FINISH_STEPS = 1000;       // max. steps to complete an action (against never-ending ones)
+    private static final int LOOKAHEAD = 8;             // segments read from a script ahead of the clock
+
+    private SceneScript script;     // the source of the segments, null: they are all added by code
+
+    // the timeline: segment i starts at starts[i], ends at ends[i] (infinite for a hold)
+    // without a script it is the whole scene, with a script the completed segments are dropped from its start
+    private Array<SceneSegment> segments;
+    private int count;
+    private float[] starts;
+    private float[] ends;
+    private Action[] actions;
+    private float[] played;         // seconds of the segment already played
+    private float cursor;           // end of the segments added so far: the start of the next sequential segment
+    private float lastStart;        // start of the segment added last (for a parallel one)
+    private float totalDuration;    // (with a script: of the part read so far)
+
+    // the start state of the actors of the scene, restored before a seek replays the segments
+    private Array<Actor> castList;
+    private ObjectIntMap<Actor> castIndex;
+    private float[] startState;
+    private String[] startText;     // DialogBox text
+
+    // playback
+    private float time;
+    private int next;               // the first segment not started yet
+    private IntArray running;       // started, not completed segments
+    private int hold;               // the index of the hold the clock waits at, -1: no hold
+    private boolean playing;
+    private boolean finished;
+    private Runnable onFinished;
 
     public Scene()
     {
         super();
-        segmentList = new ArrayList<SceneSegment>();
-        index = -1;
+        segments = new Array<SceneSegment>();
+        starts = new float[LOOKAHEAD];
+        ends = new float[LOOKAHEAD];
+        actions = new Action[LOOKAHEAD];
+        played = new float[LOOKAHEAD];
+        castList = new Array<Actor>();
+        castIndex = new ObjectIntMap<Actor>();
+        startState = new float[0];
+        startText = new String[0];
+        running = new IntArray();
+        script = null;
+        playing = false;
+        finished = false;
+        hold = -1;
+        clearWindow();
     }
 
     public void addSegment(SceneSegment segment)
     {
-        segmentList.add(segment);
+        add(segment, cursor);
+    }
+
+    // starts at the same time as the segment added before (or at 0)
+    public void addParallelSegment(SceneSegment segment)
+    {
+        add(segment, lastStart);
+    }
+
+    private void add(SceneSegment segment, float start)
+    {
+        if (count == starts.length)  grow();
+        float duration = segment.getDuration();
+        segment.setStartTime(start);
+        segments.add(segment);
+        starts[count] = start;
+        ends[count] = start + duration;
+        actions[count] = segment.getAction();
+        actions[count].setActor( segment.getActor() );
+        played[count] = 0;
+        count++;
+
+        lastStart = start;
+        if (duration != Float.POSITIVE_INFINITY)        // a hold does not take scene time
+        {
+            cursor = Math.max(cursor, start + duration);
+            totalDuration = Math.max(totalDuration, cursor);
+        }
+        addToCast( segment.getActor() );
     }
 
     public void clearSegments()
     {
-        segmentList.clear();
+        clearWindow();
+        totalDuration = 0;
+        playing = false;
+        script = null;
+    }
+
+    // the segments come from the script while playing (instead of addSegment)
+    public void setScript(SceneScript sceneScript)
+    {
+        clearSegments();
+        script = sceneScript;
+        script.rewind();
+    }
+
+    // called when the playback reaches the end or the scene is skipped / seeked to its end
+    public void setOnFinished(Runnable callback)
+    {
+        onFinished = callback;
     }
 
     public void start()
     {
-        index = 0;
-        segmentList.get(index).start();
+        playing = true;
+        rewind(0);
+        fill();
+        for (int c = 0; c < castList.size; c++)
+            captureState(c);
+        advance(0);         // the segments at time 0 start at once
+    }
+
+    // PLAYBACK
+    @Override
+    public void act(float dt)
+    {
+        super.act(dt);
+        if (!playing || finished)  return;
+        if (hold >= 0)
+            actions[hold].act(dt);      // e.g. an animation while waiting (SceneActions.pause() does nothing)
+        else
+            advance(dt);
+    }
+
+    // the clock moves dt forward: the segments whose time has come start, the running ones are played to the new time
+    private void advance(float dt)
+    {
+        float target = time + dt;
+        fill();
+        while ( hasSegment(next) && starts[next] <= target )
+        {
+            int i = next++;
+            actions[i].restart();
+            played[i] = 0;
+            if (ends[i] == Float.POSITIVE_INFINITY)     // a hold: the clock stops at it
+            {
+                hold = i;
+                target = starts[i];
+                break;
+            }
+            running.add(i);
+        }
+        time = target;
+
+        for (int r = 0; r < running.size; r++)
+        {
+            int i = running.get(r);
+            float local = Math.min(time, ends[i]) - starts[i];
+            if (local > played[i])
+            {
+                actions[i].act(local - played[i]);
+                played[i] = local;
+            }
+            if (time >= ends[i])
+            {
+                complete(i);
+                running.removeIndex(r--);
+                Runnable callback = segments.get(i).getOnFinished();
+                if (callback != null)  callback.run();
+            }
+        }
+        compact();
+        checkFinished();
+    }
+
+    // the scene goes on after a hold
+    public void resume()
+    {
+        if (hold < 0)  return;
+        hold = -1;
+        advance(0);         // the segments right after the hold start in this frame
+    }
+
+    public boolean isHolding()
+    {
+        return hold >= 0;
+    }
+
+    // SEEKING
+    // restore the start state of the actors, then replay every segment that starts at or before the time:
+    // the ones ended by then are completed, the others are played to the time and continue from there
+    // holds before the time are passed, callbacks of the passed segments are not called
+    public void seek(float t)
+    {
+        if (!playing)  start();        // (the start state is captured by start())
+        t = Math.max(0, t);
+        for (int c = 0; c < castList.size; c++)
+            restoreState(c);
+        if (script != null)
+        {
+            script.rewind();
+            clearWindow();
+        }
+        rewind(t);
+
+        boolean more = true;
+        while (more)        // without a script in one pass, with a script window by window
+        {
+            fill();
+            int end = upperBound(t);
+            for (int i = next; i < end; i++)
+                replay(i, t);
+            next = end;
+            more = (end == count) && canRead();
+            compact();
+        }
+        time = canRead() ? t : Math.min(t, totalDuration);
+        checkFinished();
+    }
+
+    // the whole scene in one step: the actors get their end state
+    public void skip()
+    {
+        seek(Float.POSITIVE_INFINITY);
+    }
+
+    private void replay(int i, float t)
+    {
+        if (ends[i] == Float.POSITIVE_INFINITY)  return;
+        actions[i].restart();
+        if (t >= ends[i])
+            complete(i);
+        else
+        {
+            playTo(i, t - starts[i]);
+            running.add(i);
+        }
     }
 
-    public boolean isSegmentFinished()
+    private void rewind(float t)
     {
-        return segmentList.get(index).isFinished();
+        time = t;
+        next = 0;
+        hold = -1;
+        running.clear();
+        finished = false;
     }
 
-    public boolean isLastSegment()
+    // the number of segments (of the window) starting at or before the time: O(log n)
+    private int upperBound(float t)
     {
-        return (index >= segmentList.size() - 1);
+        int low = 0;
+        int high = count;
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+            if (starts[middle] <= t)  low = middle + 1;
+            else  high = middle;
+        }
+        return low;
     }
 
-    public void loadNextSegment()
+    private void playTo(int i, float local)
     {
-        if ( isLastSegment() )
-            return;
-        segmentList.get(index).finish();
-        index++;
-        segmentList.get(index).start();
+        Action action = actions[i];
+        if (action instanceof TemporalAction)
+            action.act(local);              // one step is exact
+        else
+        {
+            float step = 0;                 // a sequence plays one part per act(): frame by frame
+            while (step + SEEK_STEP < local)
+            {
+                action.act(SEEK_STEP);
+                step += SEEK_STEP;
+            }
+            action.act(local - step);
+        }
+        played[i] = local;
+    }
+
+    // the end state of the action (an instant one just runs)
+    private void complete(int i)
+    {
+        float step = Math.max(ends[i] - starts[i], 1);
+        for (int n = 0; n < FINISH_STEPS; n++)
+            if ( actions[i].act(step) )  break;
+        played[i] = ends[i] - starts[i];
+    }
+
+    private void checkFinished()
+    {
+        if ( finished || next < count || running.size > 0 || hold >= 0 || canRead() )  return;
+        finished = true;
+        if (onFinished != null)  onFinished.run();
+    }
+
+    // THE WINDOW of a script
+    private boolean canRead()
+    {
+        return script != null && !script.isFinished();
+    }
+
+    // read segments until LOOKAHEAD of them are waiting to start
+    private void fill()
+    {
+        while ( canRead() && count - next < LOOKAHEAD )
+            script.readSegment(this);
+    }
+
+    private boolean hasSegment(int i)
+    {
+        if (i >= count)  fill();
+        return i < count;
+    }
+
+    // drop the completed segments (only with a script: without one the whole timeline is kept for seeking)
+    private void compact()
+    {
+        if (script == null)  return;
+        int first = next;
+        if (hold >= 0)  first = Math.min(first, hold);
+        for (int r = 0; r < running.size; r++)
+            first = Math.min( first, running.get(r) );
+        if (first < LOOKAHEAD)  return;         // not at every segment
+
+        int kept = count - first;
+        System.arraycopy(starts, first, starts, 0, kept);
+        System.arraycopy(ends, first, ends, 0, kept);
+        System.arraycopy(actions, first, actions, 0, kept);
+        System.arraycopy(played, first, played, 0, kept);
+        for (int i = kept; i < count; i++)  actions[i] = null;
+        segments.removeRange(0, first - 1);
+        count = kept;
+        next -= first;
+        if (hold >= 0)  hold -= first;
+        for (int r = 0; r < running.size; r++)
+            running.set( r, running.get(r) - first );
+    }
+
+    private void clearWindow()
+    {
+        segments.clear();
+        for (int i = 0; i < count; i++)  actions[i] = null;
+        count = 0;
+        cursor = 0;
+        lastStart = 0;
+    }
+
+    private void grow()
+    {
+        int capacity = starts.length * 2;
+        float[] newStarts = new float[capacity];
+        float[] newEnds = new float[capacity];
+        Action[] newActions = new Action[capacity];
+        float[] newPlayed = new float[capacity];
+        System.arraycopy(starts, 0, newStarts, 0, count);
+        System.arraycopy(ends, 0, newEnds, 0, count);
+        System.arraycopy(actions, 0, newActions, 0, count);
+        System.arraycopy(played, 0, newPlayed, 0, count);
+        starts = newStarts;
+        ends = newEnds;
+        actions = newActions;
+        played = newPlayed;
+    }
+
+    // START STATE of an actor: position, size, rotation, scale, color, visibility (+ the text of a DialogBox)
+    // an actor appearing first in a later segment of a script is captured when that segment is read
+    private void addToCast(Actor a)
+    {
+        if ( castIndex.containsKey(a) )  return;
+        int c = castList.size;
+        castIndex.put(a, c);
+        castList.add(a);
+        if ( startState.length < castList.size * STATE_SIZE )
+        {
+            float[] newState = new float[castList.size * 2 * STATE_SIZE];
+            String[] newText = new String[castList.size * 2];
+            System.arraycopy(startState, 0, newState, 0, startState.length);
+            System.arraycopy(startText, 0, newText, 0, startText.length);
+            startState = newState;
+            startText = newText;
+        }
+        captureState(c);
+    }
+
+    private void captureState(int c)
+    {
+        Actor a = castList.get(c);
+        int o = c * STATE_SIZE;
+        Color color = a.getColor();
+        startState[o]     = a.getX();
+        startState[o + 1] = a.getY();
+        startState[o + 2] = a.getWidth();
+        startState[o + 3] = a.getHeight();
+        startState[o + 4] = a.getRotation();
+        startState[o + 5] = a.getScaleX();
+        startState[o + 6] = a.getScaleY();
+        startState[o + 7] = color.r;
+        startState[o + 8] = color.g;
+        startState[o + 9] = color.b;
+        startState[o + 10] = color.a;
+        startState[o + 11] = a.isVisible() ? 1 : 0;
+        startText[c] = (a instanceof DialogBox) ? ((DialogBox) a).getText() : null;
+    }
+
+    private void restoreState(int c)
+    {
+        Actor a = castList.get(c);
+        int o = c * STATE_SIZE;
+        a.setBounds( startState[o], startState[o + 1], startState[o + 2], startState[o + 3] );
+        a.setRotation( startState[o + 4] );
+        a.setScale( startState[o + 5], startState[o + 6] );
+        a.setColor( startState[o + 7], startState[o + 8], startState[o + 9], startState[o + 10] );
+        a.setVisible( startState[o + 11] != 0 );
+        if (startText[c] != null)  ((DialogBox) a).setText( startText[c] );
+    }
+
+    // STATE of the playback
+    public float getTime()
+    {
+        return time;
+    }
+
+    // the length of the scene without the waiting at the holds (with a script: of the part read so far)
+    public float getDuration()
+    {
+        return totalDuration;
     }
 
     public boolean isSceneFinished()
     {
-        return ( isLastSegment() && isSegmentFinished() );
+        return finished;
     }
 
-    @Override
-    public void act(float dt)           // switch to the next after current is finished
+    // the number of segments held in the timeline (with a script: a window bounded by the lookahead)
+    public int getSegmentCount()
     {
-        if ( isSegmentFinished() && !isLastSegment() )    loadNextSegment();
+        return count;
     }
-}
\ No newline at end of file
+}
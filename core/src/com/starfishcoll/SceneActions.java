@@ -8,7 +8,7 @@ import com.badlogic.gdx.utils.Align;
 
 /**
  * Extension of Actions class, for new action types as static methods:
- * - text to DialogBox
+ * - text to DialogBox (at once, or revealed character by character)
  * - pause
  * - screen alignment move actions  (using Actions' static methods)
  */
@@ -20,6 +20,16 @@ public class SceneActions extends Actions
         return new SetTextAction(s);
     }
 
+    public static Action typeText(String s)
+    {
+        return new TypewriterAction(s, TypewriterAction.DEFAULT_SPEED);
+    }
+
+    public static Action typeText(String s, float charactersPerSecond)
+    {
+        return new TypewriterAction(s, charactersPerSecond);
+    }
+
     public static Action pause()
     {
         return Actions.forever( Actions.delay(1) );
@@ -0,0 +1,194 @@
+package com.starfishcoll;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.scenes.scene2d.Action;
+import com.badlogic.gdx.scenes.scene2d.Actor;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.StreamUtils;
+
+/**
+ * A cutscene in a text file (e.g. story.scene in the assets) instead of Java code.
+ * The Scene reads it while playing it: a line becomes a SceneSegment only a few segments before the clock reaches it,
+ * so a long story starts at once and its memory does not grow with its length (see Scene.setScript).
+ *
+ * One segment per line:   [&] actor action [arguments]
+ *   &        the segment starts together with the previous one (parallel track), otherwise after the previous ones
+ *   actor    a name given to setActor()
+ *   action   show / hide / pause,  setText "TEXT",  typeText "TEXT" [CHARACTERS_PER_SECOND],
+ *            fadeIn / fadeOut / delay SECONDS,
+ *            moveToScreenLeft / moveToScreenRight / moveToScreenCenter / moveToOutsideLeft / moveToOutsideRight SECONDS,
+ *            moveTo X Y SECONDS,  moveBy X Y SECONDS
+ *   empty lines and lines starting with # are skipped
+ */
+
+public class SceneScript
+{
+    private FileHandle file;
+    private ObjectMap<String, Actor> actors;       // the cast by name
+    private BufferedReader reader;                 // opened at the first segment
+    private int lineNumber;
+    private boolean finished;                      // the end of the file is reached
+    private Array<String> words;                   // the parts of the current line (reused)
+
+    public SceneScript(FileHandle file)
+    {
+        this.file = file;
+        actors = new ObjectMap<String, Actor>();
+        words = new Array<String>();
+        rewind();
+    }
+
+    public void setActor(String name, Actor actor)
+    {
+        actors.put(name, actor);
+    }
+
+    // the next segment of the file to the scene, false at the end of the file
+    public boolean readSegment(Scene scene)
+    {
+        if (finished)  return false;
+        if (reader == null)  reader = file.reader(1024, "UTF-8");
+        String line;
+        while ( (line = readLine()) != null )
+        {
+            lineNumber++;
+            line = line.trim();
+            if ( line.length() == 0 || line.startsWith("#") )  continue;
+            parse(line, scene);
+            return true;
+        }
+        close();
+        finished = true;
+        return false;
+    }
+
+    public boolean isFinished()
+    {
+        return finished;
+    }
+
+    // read it again from the first line (the Scene seeks by replaying the script)
+    public void rewind()
+    {
+        close();
+        lineNumber = 0;
+        finished = false;
+    }
+
+    public void close()
+    {
+        StreamUtils.closeQuietly(reader);
+        reader = null;
+    }
+
+    private String readLine()
+    {
+        try
+        {
+            return reader.readLine();
+        }
+        catch (IOException e)
+        {
+            throw new GdxRuntimeException("Error reading scene script: " + file, e);
+        }
+    }
+
+    // PARSING
+    private void parse(String line, Scene scene)
+    {
+        if ( !split(line, words) )  throw error("missing closing quote");
+        int w = 0;
+        boolean parallel = words.get(0).equals("&");
+        if (parallel)  w++;
+        if (words.size < w + 2)  throw error("actor and action expected");
+
+        Actor actor = actors.get( words.get(w) );
+        if (actor == null)  throw error("unknown actor: " + words.get(w));
+        SceneSegment segment = new SceneSegment( actor, createAction(w + 1) );
+        if (parallel)  scene.addParallelSegment(segment);
+        else           scene.addSegment(segment);
+    }
+
+    // the action named by the word at the index, with the arguments after it
+    private Action createAction(int w)
+    {
+        String name = words.get(w);
+        if ( name.equals("show") )                return SceneActions.show();
+        if ( name.equals("hide") )                return SceneActions.hide();
+        if ( name.equals("pause") )               return SceneActions.pause();
+        if ( name.equals("setText") )             return SceneActions.setText( argument(w, 1) );
+        if ( name.equals("typeText") )
+            return (words.size > w + 2) ? SceneActions.typeText( argument(w, 1), number(w, 2) )
+                                        : SceneActions.typeText( argument(w, 1) );
+        if ( name.equals("fadeIn") )              return SceneActions.fadeIn( number(w, 1) );
+        if ( name.equals("fadeOut") )             return SceneActions.fadeOut( number(w, 1) );
+        if ( name.equals("delay") )               return SceneActions.delay( number(w, 1) );
+        if ( name.equals("moveToScreenLeft") )    return SceneActions.moveToScreenLeft( number(w, 1) );
+        if ( name.equals("moveToScreenRight") )   return SceneActions.moveToScreenRight( number(w, 1) );
+        if ( name.equals("moveToScreenCenter") )  return SceneActions.moveToScreenCenter( number(w, 1) );
+        if ( name.equals("moveToOutsideLeft") )   return SceneActions.moveToOutsideLeft( number(w, 1) );
+        if ( name.equals("moveToOutsideRight") )  return SceneActions.moveToOutsideRight( number(w, 1) );
+        if ( name.equals("moveTo") )  return SceneActions.moveTo( number(w, 1), number(w, 2), number(w, 3) );
+        if ( name.equals("moveBy") )  return SceneActions.moveBy( number(w, 1), number(w, 2), number(w, 3) );
+        throw error("unknown action: " + name);
+    }
+
+    private String argument(int w, int n)
+    {
+        if (w + n >= words.size)  throw error("missing argument of " + words.get(w));
+        return words.get(w + n);
+    }
+
+    private float number(int w, int n)
+    {
+        String word = argument(w, n);
+        try
+        {
+            return Float.parseFloat(word);
+        }
+        catch (NumberFormatException e)
+        {
+            throw error("number expected: " + word);
+        }
+    }
+
+    // words separated by spaces, "text in quotes" is one word (also for the level files, see LevelMap)
+    // false if a closing quote is missing
+    static boolean split(String line, Array<String> words)
+    {
+        words.clear();
+        int i = 0;
+        int length = line.length();
+        while (i < length)
+        {
+            char c = line.charAt(i);
+            if ( Character.isWhitespace(c) )
+                i++;
+            else if (c == '"')
+            {
+                int end = line.indexOf('"', i + 1);
+                if (end < 0)  return false;
+                words.add( line.substring(i + 1, end) );
+                i = end + 1;
+            }
+            else
+            {
+                int end = i;
+                while ( end < length && !Character.isWhitespace(line.charAt(end)) )  end++;
+                words.add( line.substring(i, end) );
+                i = end;
+            }
+        }
+        return true;
+    }
+
+    private GdxRuntimeException error(String message)
+    {
+        return new GdxRuntimeException(file.name() + ":" + lineNumber + ": " + message);
+    }
+}
@@ -2,9 +2,19 @@ package com.starfishcoll;
 
 import com.badlogic.gdx.scenes.scene2d.Actor;
 import com.badlogic.gdx.scenes.scene2d.Action;
+import com.badlogic.gdx.scenes.scene2d.actions.DelayAction;
+import com.badlogic.gdx.scenes.scene2d.actions.DelegateAction;
+import com.badlogic.gdx.scenes.scene2d.actions.ParallelAction;
+import com.badlogic.gdx.scenes.scene2d.actions.RepeatAction;
+import com.badlogic.gdx.scenes.scene2d.actions.SequenceAction;
+import com.badlogic.gdx.scenes.scene2d.actions.TemporalAction;
+import com.badlogic.gdx.utils.Array;
 
 /**
  * A base element of scene management: 1 action of an actor
+ * The Scene plays the action itself (it is not added to the actor), so the other actions of the actor are not touched.
+ * Its length is known in advance (getDuration()) - an action that never ends (SceneActions.pause(), Actions.forever)
+ * is a hold: the scene waits there until it is resumed.
  * 20/01/2022
  */
 
@@ -12,30 +22,93 @@ public class SceneSegment
 {
     private Actor actor;
     private Action action;
+    private Runnable onFinished;        // called when the playback of the scene completes the segment
+    private float startTime;            // set by the Scene when the segment is added
 
     public SceneSegment(Actor a1, Action a2)
     {
         actor = a1;
         action = a2;
+        onFinished = null;
     }
 
-    public void start()
+    public Actor getActor()
     {
-        actor.clearActions();
-        actor.addAction(action);
+        return actor;
     }
 
-    public boolean isFinished()
+    public Action getAction()
     {
-        return (actor.getActions().size == 0);
+        return action;
     }
 
-    public void finish()
+    public float getStartTime()
     {
-        // simulate 100000 seconds elapsed time to complete in-progress action
-        if ( actor.hasActions() )
-            actor.getActions().first().act(100000);
-        // remove any remaining actions
-        actor.clearActions();
+        return startTime;
     }
-}
\ No newline at end of file
+
+    void setStartTime(float time)
+    {
+        startTime = time;
+    }
+
+    // completion callback instead of polling: not called when the scene jumps over the segment (seek, skip)
+    public void setOnFinished(Runnable callback)
+    {
+        onFinished = callback;
+    }
+
+    public Runnable getOnFinished()
+    {
+        return onFinished;
+    }
+
+    // seconds from the start of the action until its end, infinite for a hold
+    public float getDuration()
+    {
+        return durationOf(action);
+    }
+
+    public boolean isHold()
+    {
+        return getDuration() == Float.POSITIVE_INFINITY;
+    }
+
+    // the length of the built-in action types: timed ones by their duration, composite ones by their parts,
+    // the rest (show, hide, setText...) completes at once
+    static float durationOf(Action action)
+    {
+        if (action instanceof TemporalAction)
+            return ((TemporalAction) action).getDuration();
+        if (action instanceof DelayAction)
+        {
+            DelayAction delay = (DelayAction) action;
+            return delay.getDuration() + durationOf( delay.getAction() );
+        }
+        if (action instanceof RepeatAction)
+        {
+            RepeatAction repeat = (RepeatAction) action;
+            if (repeat.getCount() == RepeatAction.FOREVER)  return Float.POSITIVE_INFINITY;
+            return repeat.getCount() * durationOf( repeat.getAction() );
+        }
+        if (action instanceof DelegateAction)
+            return durationOf( ((DelegateAction) action).getAction() );
+        if (action instanceof SequenceAction)       // (before ParallelAction: it is its subclass)
+        {
+            Array<Action> parts = ((SequenceAction) action).getActions();
+            float sum = 0;
+            for (int i = 0; i < parts.size; i++)
+                sum += durationOf( parts.get(i) );
+            return sum;
+        }
+        if (action instanceof ParallelAction)
+        {
+            Array<Action> parts = ((ParallelAction) action).getActions();
+            float max = 0;
+            for (int i = 0; i < parts.size; i++)
+                max = Math.max( max, durationOf(parts.get(i)) );
+            return max;
+        }
+        return 0;
+    }
+}
@@ -1,6 +1,7 @@
 package com.starfishcoll;
 
 import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.badlogic.gdx.utils.FloatArray;
 
 /**
  * Game signs: they will store text to be displayed by a DialogBox object
@@ -22,6 +23,7 @@ public class Sign extends BaseActor
         viewing = false;
 
         setBoundaryPolygon(8);
+        setBoundaryImmutable(true);     // never moves: its boundary is computed only once
     }
 
     public void setText(String t)
@@ -35,4 +37,20 @@ public class Sign extends BaseActor
 
     public boolean isViewing()
     { return viewing; }
+
+    // snapshot (see ActorSnapshot): the text never changes, only whether it is shown
+    @Override
+    protected void writeState(FloatArray out)
+    {
+        super.writeState(out);
+        out.add( viewing ? 1 : 0 );
+    }
+
+    @Override
+    protected int readState(float[] in, int offset)
+    {
+        offset = super.readState(in, offset);
+        viewing = in[offset] != 0;
+        return offset + 1;
+    }
 }
\ No newline at end of file
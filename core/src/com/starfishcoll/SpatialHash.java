@@ -0,0 +1,151 @@
+package com.starfishcoll;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.LongMap;
+
+/**
+ * Part of Game FW   implemented during creating Starfish Collector game
+ *   Uniform grid broadphase for the collision queries of BaseActor
+ *
+ *        The world is cut into square cells, every collidable actor (= one with a boundary polygon) is listed
+ *        in each cell its bounds touch. The actor keeps the cell range it is stored in, so a move that stays
+ *        inside the same cells costs nothing, and only changed ranges are rewritten.
+ *        Queries give the actors of a given type around an area - the narrow (SAT) test is then the caller's job.
+ *        A query never writes into the actors: an actor spanning several cells is reported only from the first
+ *        cell shared by its range and the query range, so there is no need for a "visited" mark.
+ *        Only the cells with actors are in the map: a cell emptied by a move is taken out (the map does not grow
+ *        with the explored area), and its list is kept in a small free list for the next new cell.
+ */
+
+public class SpatialHash
+{
+    public static final float DEFAULT_CELL_SIZE = 128;
+    private static final int MAX_FREE_CELLS = 64;      // empty cell lists kept for reuse, the others are dropped
+
+    private float cellSize;
+    private LongMap<Array<BaseActor>> cells;        // cell key (x,y packed into a long) -> actors touching the cell
+    private Array<Array<BaseActor>> freeCells;      // lists of emptied cells, reused by addToCells()
+
+
+    public SpatialHash(float cellSize)
+    {
+        this.cellSize = cellSize;
+        cells = new LongMap<Array<BaseActor>>();
+        freeCells = new Array<Array<BaseActor>>(false, MAX_FREE_CELLS);
+    }
+
+    public float getCellSize()
+    {
+        return cellSize;
+    }
+
+
+    // KEEP THE ACTORS IN THE GRID
+
+    void insert(BaseActor actor)
+    {
+        if (actor.inSpatialHash)  return;
+        actor.inSpatialHash = true;
+        actor.cellMinX = cellOf( actor.getBoundsMinX() );
+        actor.cellMinY = cellOf( actor.getBoundsMinY() );
+        actor.cellMaxX = cellOf( actor.getBoundsMaxX() );
+        actor.cellMaxY = cellOf( actor.getBoundsMaxY() );
+        addToCells(actor);
+    }
+
+    // called when the actor moved or changed size: rewrites its cells only if its cell range changed
+    void update(BaseActor actor)
+    {
+        if (!actor.inSpatialHash)  return;
+        int minX = cellOf( actor.getBoundsMinX() );
+        int minY = cellOf( actor.getBoundsMinY() );
+        int maxX = cellOf( actor.getBoundsMaxX() );
+        int maxY = cellOf( actor.getBoundsMaxY() );
+        if (minX == actor.cellMinX && minY == actor.cellMinY && maxX == actor.cellMaxX && maxY == actor.cellMaxY)
+            return;
+        removeFromCells(actor);
+        actor.cellMinX = minX;
+        actor.cellMinY = minY;
+        actor.cellMaxX = maxX;
+        actor.cellMaxY = maxY;
+        addToCells(actor);
+    }
+
+    void remove(BaseActor actor)
+    {
+        if (!actor.inSpatialHash)  return;
+        removeFromCells(actor);
+        actor.inSpatialHash = false;
+    }
+
+
+    // QUERY: actors of the given type whose cells touch the given area - results are added to "out"
+    // "exclude" (usually the asking actor itself) is left out
+    public <T extends BaseActor> Array<T> query(float minX, float minY, float maxX, float maxY,
+                                                Class<T> type, BaseActor exclude, Array<T> out)
+    {
+        int qMinX = cellOf(minX);
+        int qMinY = cellOf(minY);
+        int qMaxX = cellOf(maxX);
+        int qMaxY = cellOf(maxY);
+
+        for (int cy = qMinY; cy <= qMaxY; cy++)
+            for (int cx = qMinX; cx <= qMaxX; cx++)
+            {
+                Array<BaseActor> cell = cells.get( key(cx, cy) );
+                if (cell == null)  continue;
+                for (int i = 0; i < cell.size; i++)
+                {
+                    BaseActor a = cell.get(i);
+                    if ( a == exclude || !type.isInstance(a) )  continue;
+                    // report each actor once: from the first cell common to its range and the query range
+                    if ( cx != Math.max(qMinX, a.cellMinX) || cy != Math.max(qMinY, a.cellMinY) )  continue;
+                    out.add( type.cast(a) );
+                }
+            }
+        return out;
+    }
+
+
+    // HELPERS
+
+    private void addToCells(BaseActor actor)
+    {
+        for (int cy = actor.cellMinY; cy <= actor.cellMaxY; cy++)
+            for (int cx = actor.cellMinX; cx <= actor.cellMaxX; cx++)
+            {
+                long k = key(cx, cy);
+                Array<BaseActor> cell = cells.get(k);
+                if (cell == null)
+                {
+                    cell = (freeCells.size > 0) ? freeCells.pop() : new Array<BaseActor>(true, 8, BaseActor.class);
+                    cells.put(k, cell);
+                }
+                cell.add(actor);
+            }
+    }
+
+    private void removeFromCells(BaseActor actor)
+    {
+        for (int cy = actor.cellMinY; cy <= actor.cellMaxY; cy++)
+            for (int cx = actor.cellMinX; cx <= actor.cellMaxX; cx++)
+            {
+                long k = key(cx, cy);
+                Array<BaseActor> cell = cells.get(k);
+                if (cell == null || !cell.removeValue(actor, true) || cell.size > 0)  continue;
+                cells.remove(k);            // emptied: out of the map, its list to the free list
+                if (freeCells.size < MAX_FREE_CELLS)  freeCells.add(cell);
+            }
+    }
+
+    private int cellOf(float coordinate)
+    {
+        return MathUtils.floor(coordinate / cellSize);
+    }
+
+    private static long key(int cx, int cy)
+    {
+        return ((long) cx << 32) | (cy & 0xffffffffL);
+    }
+}
@@ -3,6 +3,7 @@ package com.starfishcoll;
 import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.scenes.scene2d.Action;
 import com.badlogic.gdx.scenes.scene2d.actions.Actions;
+import com.badlogic.gdx.utils.FloatArray;
 
 public class Starfish extends BaseActor
 {
@@ -10,18 +11,40 @@ public class Starfish extends BaseActor
     private boolean collected;      // to collect only once
 
     public Starfish(float x, float y, Stage s)
+    {
+        this(x, y, s, true);
+    }
+
+    // counted: false if the GameState has already counted it (a starfish of a streamed level, see LevelStreamer)
+    Starfish(float x, float y, Stage s, boolean counted)
     {
         super(x,y,s);
         loadTexture("starfish.png");    // no image based animation
 
-        // add a value-based animation: a slow rotation of 30 degrees every ONE second to draw the player's attention
-        Action spin = Actions.rotateBy(30, 1);
-        this.addAction( Actions.forever(spin) );
+        addSpin();
 
         // for collision detection
         setBoundaryPolygon(8);
 
         collected = false;
+        GameState state = GameState.of(s);        // one more to collect in the level
+        if (state != null && counted)  state.starfishAdded();
+    }
+
+    // add a value-based animation: a slow rotation of 30 degrees every ONE second to draw the player's attention
+    private void addSpin()
+    {
+        Action spin = Actions.rotateBy(30, 1);
+        this.addAction( Actions.forever(spin) );
+    }
+
+    // when reused from an ActorPool: not collected, spinning again
+    @Override
+    public void reset()
+    {
+        super.reset();
+        collected = false;
+        addSpin();
     }
 
     // methods for checking if Starfish is collected and to collect it with add. animation
@@ -33,8 +56,36 @@ public class Starfish extends BaseActor
     public void collect()
     {
         collected = true;
+        GameState state = GameState.of( getStage() );
+        if (state != null)  state.starfishCollected();
         clearActions();                                    // clear all animations
-        addAction( Actions.fadeOut(fadingTime) );              // fade it out during a central set time (to reach synchronization)
+        fadeAway(fadingTime);
+    }
+
+    private void fadeAway(float duration)
+    {
+        addAction( Actions.fadeOut(duration) );              // fade it out during a central set time (to reach synchronization)
         addAction( Actions.after( Actions.removeActor() ) );    // then remove it from Stage
     }
+
+    // snapshot (see ActorSnapshot): collected or not - the spin or the fading goes on from the restored state
+    @Override
+    protected void writeState(FloatArray out)
+    {
+        super.writeState(out);
+        out.add( collected ? 1 : 0 );
+    }
+
+    @Override
+    protected int readState(float[] in, int offset)
+    {
+        offset = super.readState(in, offset);
+        collected = in[offset] != 0;
+        clearActions();
+        if (collected)
+            fadeAway( fadingTime * getColor().a );       // the rest of the fading
+        else
+            addSpin();
+        return offset + 1;
+    }
 }
\ No newline at end of file
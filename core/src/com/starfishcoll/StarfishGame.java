@@ -2,9 +2,31 @@ package com.starfishcoll;
 
 public class StarfishGame extends BaseGame
 {
+    // the screens of the game: each is built once, when it is first shown (see BaseGame: screen registry)
+    public static final String MENU = "menu";
+    public static final String STORY = "story";
+    public static final String LEVEL = "level";
+
     public void create()
     {
         super.create();
-        setActiveScreen( new MenuScreen() );    // create starting screen and set it as active
+        BaseScreen.setFixedTimestep(60, 5);     // deterministic simulation: 60 ticks per second, whatever the frame rate
+        FrameProfiler.trackActorType(Starfish.class);       // counted per frame by the profiler (F3)
+        FrameProfiler.trackActorType(Rock.class);
+        FrameProfiler.trackActorType(Whirlpool.class);
+
+        registerScreen(MENU, new ScreenFactory() {
+            @Override
+            public BaseScreen create() { return new MenuScreen(); }
+        });
+        registerScreen(STORY, new ScreenFactory() {
+            @Override
+            public BaseScreen create() { return new StoryScreen(); }
+        });
+        registerScreen(LEVEL, new ScreenFactory() {
+            @Override
+            public BaseScreen create() { return new LevelScreen(); }
+        });
+        setActiveScreen(MENU);      // create starting screen and set it as active
     }
 }
@@ -7,15 +7,25 @@ import com.badlogic.gdx.scenes.scene2d.actions.Actions;
 import com.badlogic.gdx.graphics.Color;
 
 /**
- * This will play the "movie" = a Scene = list of SceneSegments...
+ * This will play the "movie" = a Scene = list of SceneSegments... (from the script story.scene)
  * 20/01/2022
  */
 
 public class StoryScreen extends BaseScreen
 {
     Scene scene;
+    SceneScript story;
     BaseActor continueKey;
 
+    @Override
+    public void queueAssets()       // asset manifest: decoded in the background before initialize()
+    {
+        AssetCache.queueTexture("oceanside.png", false);
+        AssetCache.queueTexture("turtle-big.png", false);
+        AssetCache.queueTexture("dialog-translucent.png", false);
+        AssetCache.queueTexture("key-C.png", false);
+    }
+
     @Override
     public void initialize()
     {
@@ -45,39 +55,50 @@ public class StoryScreen extends BaseScreen
         dialogBox.addActor(continueKey);
         continueKey.setPosition( dialogBox.getWidth() - continueKey.getWidth(), 0 );
 
-        // Add scene segments to the list = create the movie...
+        // The "movie" is in a script file: its segments are read while it is played
+
+        story = new SceneScript( Gdx.files.internal("story.scene") );
+        story.setActor("background", background);
+        story.setActor("turtle", turtle);
+        story.setActor("dialog", dialogBox);
+        story.setActor("continue", continueKey);
 
         scene = new Scene();
         mainStage.addActor(scene);
-        scene.addSegment( new SceneSegment( background, Actions.fadeIn(1) ));
-        scene.addSegment( new SceneSegment( turtle, SceneActions.moveToScreenCenter(2) ));
-        scene.addSegment( new SceneSegment( dialogBox, Actions.show() ));
-        scene.addSegment( new SceneSegment( dialogBox,
-                SceneActions.setText("I want to be the very best . . . Starfish Collector!" ) ));
-        scene.addSegment( new SceneSegment( continueKey, Actions.show() ));
-        scene.addSegment( new SceneSegment( background, SceneActions.pause() ));
-        scene.addSegment( new SceneSegment( continueKey, Actions.hide() ));
-        scene.addSegment( new SceneSegment( dialogBox,
-                SceneActions.setText("I've got to collect them all!" ) ));
-        scene.addSegment( new SceneSegment( continueKey, Actions.show() ));
-        scene.addSegment( new SceneSegment( background, SceneActions.pause() ));
-        scene.addSegment( new SceneSegment( continueKey, Actions.hide() ));
-        scene.addSegment( new SceneSegment( dialogBox, Actions.hide() ) );
-        scene.addSegment( new SceneSegment( turtle, SceneActions.moveToOutsideRight(2) ));
-        scene.addSegment( new SceneSegment( background, Actions.fadeOut(2) ));
+        scene.setScript(story);
         scene.start();
     }
 
     @Override
     public void update(float dt)
     {
-        if ( scene.isSceneFinished() )  BaseGame.setActiveScreen( new LevelScreen() );
+        if ( scene.isSceneFinished() )
+        {
+            BaseGame.setActiveScreen( StarfishGame.LEVEL );
+            BaseGame.evictScreen( StarfishGame.STORY );       // not shown again: disposed after the switch
+        }
+    }
+
+    @Override
+    protected void rebuild()
+    {
+        SceneScript oldStory = story;
+        super.rebuild();
+        if (oldStory != null)  oldStory.close();
+    }
+
+    @Override
+    public void dispose()
+    {
+        if (story != null)  story.close();
+        super.dispose();
     }
 
     @Override
-    public boolean keyDown(int keyCode)         // "C" -> next segment
+    public boolean keyDown(int keyCode)         // "C" -> the scene goes on after a pause, ESCAPE -> skip the story
     {
-        if ( keyCode == Keys.C && continueKey.isVisible() )   scene.loadNextSegment();
+        if ( keyCode == Keys.C && scene.isHolding() )   scene.resume();
+        if ( keyCode == Keys.ESCAPE )   scene.skip();
         return false;
     }
 }
\ No newline at end of file
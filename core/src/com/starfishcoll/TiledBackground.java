@@ -0,0 +1,168 @@
+package com.starfishcoll;
+
+import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.scenes.scene2d.Actor;
+import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Background of the game world from small repeated images instead of one picture stretched to the world size:
+ * - layers: a tile image repeated over BaseActor.getWorldBounds() - only the tiles under the camera view are drawn
+ *   parallax 1: moves with the world, less than 1: moves slower (farther away), 0: stands still on the screen
+ * - border: the edges of a framed picture (e.g. water-border.jpg) repeated along the edges of the world, plus its corners
+ * The images are regions of the screen (BaseScreen.loadRegion): the memory does not depend on the size of the world,
+ * and drawing allocates nothing.
+ * It should be the first actor of the stage (drawn below the others).
+ */
+
+public class TiledBackground extends Actor
+{
+    private Array<TextureRegion> layerTiles;
+    private float[] layerParallax;
+
+    // the border: pieces of the framed picture, cut once in setBorder()
+    private float borderSize;
+    private TextureRegion top, bottom, left, right;
+    private TextureRegion topLeft, topRight, bottomLeft, bottomRight;
+
+    private Rectangle view;         // the part of the world under the camera (reused)
+    private Rectangle cornerBounds;
+
+    public TiledBackground(Stage s)
+    {
+        super();
+        layerTiles = new Array<TextureRegion>();
+        layerParallax = new float[0];
+        borderSize = 0;
+        view = new Rectangle();
+        cornerBounds = new Rectangle();
+        s.addActor(this);
+    }
+
+    public void addLayer(TextureRegion tile, float parallax)
+    {
+        layerTiles.add(tile);
+        float[] newParallax = new float[layerTiles.size];
+        System.arraycopy(layerParallax, 0, newParallax, 0, layerParallax.length);
+        newParallax[layerTiles.size - 1] = parallax;
+        layerParallax = newParallax;
+    }
+
+    // the frame of the picture is borderSize pixels wide: its sides are repeated, its corners drawn once
+    public void setBorder(TextureRegion frame, int borderSize)
+    {
+        this.borderSize = borderSize;
+        int w = frame.getRegionWidth();
+        int h = frame.getRegionHeight();
+        int b = borderSize;
+        top         = new TextureRegion(frame, b, 0, w - 2 * b, b);        // (region y goes down)
+        bottom      = new TextureRegion(frame, b, h - b, w - 2 * b, b);
+        left        = new TextureRegion(frame, 0, b, b, h - 2 * b);
+        right       = new TextureRegion(frame, w - b, b, b, h - 2 * b);
+        topLeft     = new TextureRegion(frame, 0, 0, b, b);
+        topRight    = new TextureRegion(frame, w - b, 0, b, b);
+        bottomLeft  = new TextureRegion(frame, 0, h - b, b, b);
+        bottomRight = new TextureRegion(frame, w - b, h - b, b, b);
+    }
+
+    @Override
+    public void draw(Batch batch, float parentAlpha)
+    {
+        Camera cam = getStage().getCamera();
+        float zoom = (cam instanceof OrthographicCamera) ? ((OrthographicCamera) cam).zoom : 1;
+        float halfWidth = cam.viewportWidth * zoom / 2;
+        float halfHeight = cam.viewportHeight * zoom / 2;
+        view.set( cam.position.x - halfWidth, cam.position.y - halfHeight, 2 * halfWidth, 2 * halfHeight );
+
+        Color c = getColor();
+        batch.setColor(c.r, c.g, c.b, c.a * parentAlpha);
+        for (int i = 0; i < layerTiles.size; i++)
+            drawLayer(batch, layerTiles.get(i), layerParallax[i], cam);
+        if (borderSize > 0)
+            drawBorder(batch);
+        batch.setColor(Color.WHITE);
+    }
+
+    // the tiles of the layer over the part of the world in view
+    private void drawLayer(Batch batch, TextureRegion tile, float parallax, Camera cam)
+    {
+        Rectangle world = BaseActor.getWorldBounds();
+        float x0 = Math.max(view.x, 0);
+        float y0 = Math.max(view.y, 0);
+        float x1 = Math.min(view.x + view.width, world.width);
+        float y1 = Math.min(view.y + view.height, world.height);
+        if (x1 <= x0 || y1 <= y0)  return;
+
+        // the layer is shifted by the part of the camera movement it does not follow
+        float offsetX = cam.position.x * (1 - parallax);
+        float offsetY = cam.position.y * (1 - parallax);
+        float w = tile.getRegionWidth();
+        float h = tile.getRegionHeight();
+        int firstColumn = (int) Math.floor( (x0 - offsetX) / w );
+        int lastColumn = (int) Math.floor( (x1 - offsetX) / w );
+        int firstRow = (int) Math.floor( (y0 - offsetY) / h );
+        int lastRow = (int) Math.floor( (y1 - offsetY) / h );
+        for (int row = firstRow; row <= lastRow; row++)
+            for (int column = firstColumn; column <= lastColumn; column++)
+                batch.draw(tile, offsetX + column * w, offsetY + row * h, w, h);
+    }
+
+    // the sides repeated along the edges of the world - only the pieces in view
+    private void drawBorder(Batch batch)
+    {
+        Rectangle world = BaseActor.getWorldBounds();
+        float b = borderSize;
+        drawAlongX(batch, top, world.height - b, b, world.width - b);
+        drawAlongX(batch, bottom, 0, b, world.width - b);
+        drawAlongY(batch, left, 0, b, world.height - b);
+        drawAlongY(batch, right, world.width - b, b, world.height - b);
+        drawCorner(batch, topLeft, 0, world.height - b);
+        drawCorner(batch, topRight, world.width - b, world.height - b);
+        drawCorner(batch, bottomLeft, 0, 0);
+        drawCorner(batch, bottomRight, world.width - b, 0);
+    }
+
+    private void drawCorner(Batch batch, TextureRegion corner, float x, float y)
+    {
+        if ( view.overlaps(cornerBounds.set(x, y, borderSize, borderSize)) )
+            batch.draw(corner, x, y, borderSize, borderSize);
+    }
+
+    // pieces of a horizontal side between from and to at the height y (the last piece is cut to fit)
+    private void drawAlongX(Batch batch, TextureRegion side, float y, float from, float to)
+    {
+        if (y + borderSize < view.y || y > view.y + view.height)  return;
+        float w = side.getRegionWidth();
+        int first = (int) Math.max( 0, Math.floor( (view.x - from) / w ) );
+        int last = (int) Math.floor( (Math.min(view.x + view.width, to) - from) / w );
+        for (int i = first; i <= last; i++)
+        {
+            float x = from + i * w;
+            float width = Math.min(w, to - x);
+            if (width <= 0)  break;
+            batch.draw(side.getTexture(), x, y, width, borderSize,
+                    side.getU(), side.getV2(), side.getU() + (side.getU2() - side.getU()) * width / w, side.getV());
+        }
+    }
+
+    private void drawAlongY(Batch batch, TextureRegion side, float x, float from, float to)
+    {
+        if (x + borderSize < view.x || x > view.x + view.width)  return;
+        float h = side.getRegionHeight();
+        int first = (int) Math.max( 0, Math.floor( (view.y - from) / h ) );
+        int last = (int) Math.floor( (Math.min(view.y + view.height, to) - from) / h );
+        for (int i = first; i <= last; i++)
+        {
+            float y = from + i * h;
+            float height = Math.min(h, to - y);
+            if (height <= 0)  break;
+            batch.draw(side.getTexture(), x, y, borderSize, height,
+                    side.getU(), side.getV2(), side.getU2(), side.getV2() + (side.getV() - side.getV2()) * height / h);
+        }
+    }
+}
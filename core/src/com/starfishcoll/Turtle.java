@@ -1,6 +1,5 @@
 package com.starfishcoll;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input.Keys;
 import com.badlogic.gdx.scenes.scene2d.Stage;
 
@@ -29,10 +28,11 @@ public class Turtle extends BaseActor
     {
         super.act(dt);
 
-        if (Gdx.input.isKeyPressed(Keys.LEFT))  accelerateAtAngle(180);     // key press -> set acc. angle
-        if (Gdx.input.isKeyPressed(Keys.RIGHT)) accelerateAtAngle(0);
-        if (Gdx.input.isKeyPressed(Keys.UP))    accelerateAtAngle(90);
-        if (Gdx.input.isKeyPressed(Keys.DOWN))  accelerateAtAngle(270);
+        // key press -> set acc. angle (the keys of the tick from GameInput: live, recorded or played back)
+        if (GameInput.isKeyPressed(Keys.LEFT))  accelerateAtAngle(180);
+        if (GameInput.isKeyPressed(Keys.RIGHT)) accelerateAtAngle(0);
+        if (GameInput.isKeyPressed(Keys.UP))    accelerateAtAngle(90);
+        if (GameInput.isKeyPressed(Keys.DOWN))  accelerateAtAngle(270);
 
         applyPhysics(dt);       // acc. -> velocity -> movement
 
@@ -0,0 +1,39 @@
+package com.starfishcoll;
+
+import com.badlogic.gdx.scenes.scene2d.actions.TemporalAction;
+
+/**
+ * Extension of TemporalAction: the text of a DialogBox appears character by character, as on a typewriter
+ * The whole text is laid out once when the action starts, then only the number of the visible glyphs grows
+ * (no substring and no new layout on every frame). The duration comes from the length of the text and the speed,
+ * so a Scene knows it in advance.
+ */
+
+public class TypewriterAction extends TemporalAction
+{
+    public static final float DEFAULT_SPEED = 30;      // characters per second
+
+    protected String textToDisplay;
+    private int glyphCount;
+
+    public TypewriterAction(String t, float charactersPerSecond)
+    {
+        super( (charactersPerSecond > 0) ? t.length() / charactersPerSecond : 0 );
+        textToDisplay = t;
+    }
+
+    @Override
+    protected void begin()
+    {
+        DialogBox db = (DialogBox) target;      // target is the ref. to Actor in Action
+        db.setText( textToDisplay );
+        glyphCount = db.getGlyphCount();
+        db.setVisibleGlyphs(0);
+    }
+
+    @Override
+    protected void update(float percent)
+    {
+        ((DialogBox) target).setVisibleGlyphs( (int) (percent * glyphCount) );
+    }
+}
@@ -11,6 +11,7 @@ public class Whirlpool extends BaseActor
     }
 
     // checks if the animation is finished playing and, if so, calls the remove method to remove it from its stage
+    // (a pooled whirlpool goes back to its pool then, see LevelScreen)
     @Override
     public void act(float dt)
     {
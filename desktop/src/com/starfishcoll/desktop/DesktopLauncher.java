@@ -2,17 +2,24 @@ package com.starfishcoll.desktop;
 
 import com.badlogic.gdx.backends.lwjgl.LwjglApplication;
 //import com.badlogic.gdx.backends.lwjgl.LwjglApplicationConfiguration;
+import com.starfishcoll.GameInput;
 import com.starfishcoll.StarfishGame;
 
 
 /**
  * The last version of Starfish Collector Game with multiple screens
+ * --record FILE: the input of the session is saved when the game is closed, --replay FILE: it is played back
  */
 
 public class DesktopLauncher {
 
 	public static void main (String[] arg) {
 		//LwjglApplicationConfiguration config = new LwjglApplicationConfiguration();
+		for (int i = 0; i + 1 < arg.length; i += 2)
+		{
+			if (arg[i].equals("--record"))  GameInput.recordTo(arg[i + 1]);
+			else if (arg[i].equals("--replay"))  GameInput.replayFrom(arg[i + 1]);
+		}
 		new LwjglApplication(new StarfishGame(), "Starfish Collector", 800, 600);
 
 	}
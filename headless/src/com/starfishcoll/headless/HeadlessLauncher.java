@@ -0,0 +1,18 @@
+package com.starfishcoll.headless;
+
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+
+/**
+ * Starts the gameplay logic without a window (libGDX headless backend + stubbed GL) for profiling and benchmarks
+ * must be run in core/assets (see the simulate task of this module)
+ */
+
+public class HeadlessLauncher
+{
+    public static void main(String[] args)
+    {
+        HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+        new HeadlessApplication( new SimulationRunner( SimulationSettings.parse(args) ), config );
+    }
+}
@@ -0,0 +1,88 @@
+package com.starfishcoll.headless;
+
+import com.badlogic.gdx.Input.Keys;
+import com.badlogic.gdx.InputProcessor;
+import com.badlogic.gdx.backends.headless.mock.input.MockInput;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Keyboard input of the headless runs: a script of "keys:ticks" steps, repeated from the start when it ends
+ *   e.g.  "RIGHT:120,RIGHT+UP:60,UP:90,LEFT:120,NONE:30,DOWN:90"
+ * the runner calls advance() once per simulation tick; isKeyPressed() answers from the current step
+ */
+
+public class ScriptedInput extends MockInput
+{
+    public static final String DEFAULT_SCRIPT = "RIGHT:120,RIGHT+UP:60,UP:90,LEFT:120,NONE:30,DOWN:90,LEFT+DOWN:60";
+
+    private Array<int[]> stepKeys;      // the keycodes held in each step
+    private IntArray stepTicks;         // the length of each step in ticks
+    private int step;
+    private int tickInStep;
+    private InputProcessor processor;
+
+    public ScriptedInput(String script)
+    {
+        stepKeys = new Array<int[]>();
+        stepTicks = new IntArray();
+        for (String item : script.split(","))
+        {
+            String[] parts = item.trim().split(":");
+            String[] keyNames = parts[0].split("\\+");
+            int[] keys = new int[ parts[0].equals("NONE") ? 0 : keyNames.length ];
+            for (int i = 0; i < keys.length; i++)
+            {
+                keys[i] = keyCode( keyNames[i] );
+            }
+            stepKeys.add(keys);
+            stepTicks.add( Integer.parseInt(parts[1]) );
+        }
+        step = 0;
+        tickInStep = 0;
+    }
+
+    // arrow keys by their constant names, anything else by the libGDX key name (e.g. "C", "Enter")
+    private static int keyCode(String name)
+    {
+        if (name.equals("LEFT"))   return Keys.LEFT;
+        if (name.equals("RIGHT"))  return Keys.RIGHT;
+        if (name.equals("UP"))     return Keys.UP;
+        if (name.equals("DOWN"))   return Keys.DOWN;
+        int code = Keys.valueOf(name);
+        if (code < 0)  throw new IllegalArgumentException("unknown key in input script: " + name);
+        return code;
+    }
+
+    public void advance()
+    {
+        tickInStep++;
+        if ( tickInStep >= stepTicks.get(step) )
+        {
+            tickInStep = 0;
+            step = (step + 1) % stepTicks.size;
+        }
+    }
+
+    @Override
+    public boolean isKeyPressed(int key)
+    {
+        int[] keys = stepKeys.get(step);
+        for (int i = 0; i < keys.length; i++)
+            if (keys[i] == key || key == Keys.ANY_KEY)  return true;
+        return false;
+    }
+
+    // BaseGame and BaseScreen hang their InputMultiplexer here
+    @Override
+    public void setInputProcessor(InputProcessor processor)
+    {
+        this.processor = processor;
+    }
+
+    @Override
+    public InputProcessor getInputProcessor()
+    {
+        return processor;
+    }
+}
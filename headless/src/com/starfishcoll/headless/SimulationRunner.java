@@ -0,0 +1,312 @@
+package com.starfishcoll.headless;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.starfishcoll.ActorPool;
+import com.starfishcoll.BaseActor;
+import com.starfishcoll.BaseGame;
+import com.starfishcoll.FrameProfiler;
+import com.starfishcoll.GameInput;
+import com.starfishcoll.LevelScreen;
+import com.starfishcoll.ParallelPhysics;
+import com.starfishcoll.Rock;
+import com.starfishcoll.Starfish;
+import com.starfishcoll.Whirlpool;
+
+/**
+ * Headless benchmark of the gameplay logic: a LevelScreen with N extra starfish and rocks is driven tick by tick
+ * through BaseScreen.tick() (the act/update part of render(), nothing is drawn) with scripted arrow keys.
+ * Result: ticks per second, p50/p99 tick time and allocated bytes per tick, written as JSON to compare commits.
+ * With --verify-movement the batched MovementSystem is checked against BaseActor.applyPhysics() instead,
+ * with --verify-parallel the parallel physics against the serial one (a mismatch ends the process with exit code 1).
+ * With --record the input of the run is saved by GameInput, with --replay a saved run is played back
+ * (its seed and input): the fingerprint of the final state in the JSON must be the same.
+ * With --profile the measured ticks are whole frames (drawn with the stub GL) and the FrameProfiler is exported.
+ */
+
+public class SimulationRunner extends ApplicationAdapter
+{
+    private SimulationSettings settings;
+    private int exitCode;           // not 0: a check found mismatches
+
+    public SimulationRunner(SimulationSettings settings)
+    {
+        this.settings = settings;
+    }
+
+    @Override
+    public void create()
+    {
+        Gdx.gl = Gdx.gl20 = StubGL20.create();
+        ScriptedInput input = new ScriptedInput(settings.inputScript);
+        Gdx.input = input;
+
+        if (settings.verifyMovement)
+        {
+            if (verifyMovement() > 0)  exitCode = 1;
+            Gdx.app.exit();
+            return;
+        }
+
+        // the framework as in the game, but the level is set directly (no loading screen)
+        BaseGame game = new BaseGame() { };
+        game.create();
+        BaseGame.setLoadingScreenEnabled(false);
+
+        if (settings.verifyParallel)
+        {
+            if (verifyParallel() > 0)  exitCode = 1;
+            Gdx.app.exit();
+            return;
+        }
+
+        // a recorded run: its seed and its input instead of the script (the same ticks, the same fingerprint)
+        if (settings.replayFile != null)
+        {
+            GameInput.startReplay( Gdx.files.absolute(settings.replayFile) );
+            settings.seed = GameInput.getSeed();
+        }
+        else if (settings.recordFile != null)
+            GameInput.startRecording(settings.seed);
+
+        ParallelPhysics.setEnabled(settings.parallel);
+        LevelScreen level = startLevel();
+
+        float dt = 1 / settings.ticksPerSecond;
+        for (int i = 0; i < settings.warmupTicks; i++)      // JIT warm-up, not measured
+        {
+            level.tick(dt);
+            input.advance();
+        }
+
+        // profiling: whole frames (act + draw) instead of ticks, every frame kept by the FrameProfiler
+        boolean profiling = (settings.profileFile != null);
+        if (profiling)
+        {
+            FrameProfiler.setCapacity(settings.ticks);
+            FrameProfiler.trackActorType(Starfish.class);
+            FrameProfiler.trackActorType(Rock.class);
+            FrameProfiler.trackActorType(Whirlpool.class);
+            FrameProfiler.setEnabled(true);
+        }
+
+        long[] tickNanos = new long[settings.ticks];
+        long allocatedBefore = allocatedBytes();
+        long start = TimeUtils.nanoTime();
+        for (int i = 0; i < settings.ticks; i++)
+        {
+            long tickStart = TimeUtils.nanoTime();
+            if (profiling)
+                level.render(dt);
+            else
+                level.tick(dt);
+            tickNanos[i] = TimeUtils.nanoTime() - tickStart;
+            input.advance();
+        }
+        long total = TimeUtils.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        if (profiling)
+        {
+            FrameProfiler.write( Gdx.files.absolute(settings.profileFile) );
+            FrameProfiler.setEnabled(false);
+            System.out.println("frame profile written to " + settings.profileFile);
+        }
+        if ( GameInput.isRecording() )
+            Gdx.files.absolute(settings.recordFile).writeBytes( GameInput.stopRecording(), false );
+        GameInput.stopReplay();
+
+        writeResults(tickNanos, total, allocated, level);
+        Gdx.app.exit();
+    }
+
+    // called by the headless backend when its loop has ended: a failed check is reported to the caller (script, CI)
+    @Override
+    public void dispose()
+    {
+        if (exitCode != 0)
+            System.exit(exitCode);
+    }
+
+    private LevelScreen startLevel()
+    {
+        LevelScreen level = new LevelScreen(settings.level);
+        BaseGame.setActiveScreen(level);
+        spawn( level.getMainStage() );
+        return level;
+    }
+
+    // the same level (same seed, same input) with the parallel physics off and on:
+    // after every tick the state of the stage must be the same - returns the number of ticks that differ
+    private int verifyParallel()
+    {
+        int tickCount = settings.warmupTicks + settings.ticks;
+        long[] serial = runForFingerprints(false, tickCount);
+        long[] parallel = runForFingerprints(true, tickCount);
+        int mismatches = 0;
+        for (int t = 0; t < tickCount; t++)
+            if (serial[t] != parallel[t])  mismatches++;
+        System.out.println("parallel check: " + tickCount + " ticks, threads: "
+                + Runtime.getRuntime().availableProcessors() + ", mismatches: " + mismatches);
+        ParallelPhysics.setEnabled(false);
+        return mismatches;
+    }
+
+    // the fingerprint of the stage after each tick of a fresh level (also used by ParallelPhysicsTest)
+    long[] runForFingerprints(boolean parallel, int tickCount)
+    {
+        ParallelPhysics.setEnabled(parallel);
+        ScriptedInput input = new ScriptedInput(settings.inputScript);     // the script from its start
+        input.setInputProcessor( Gdx.input.getInputProcessor() );          // the multiplexer of the game
+        Gdx.input = input;
+        LevelScreen level = startLevel();
+        int starfishAtStart = BaseActor.count(level.getMainStage(), Starfish.class);
+
+        float dt = 1 / settings.ticksPerSecond;
+        long[] fingerprints = new long[tickCount];
+        for (int t = 0; t < tickCount; t++)
+        {
+            level.tick(dt);
+            input.advance();
+            fingerprints[t] = fingerprint( level.getMainStage() );
+        }
+        System.out.println( (parallel ? "parallel" : "serial") + " run: starfish left "
+                + BaseActor.count(level.getMainStage(), Starfish.class) + " of " + starfishAtStart );
+        level.dispose();
+        return fingerprints;
+    }
+
+    // position and rotation of every actor, in the order of the registry
+    private static long fingerprint(Stage stage)
+    {
+        Array<BaseActor> actors = BaseActor.getList(stage, BaseActor.class);
+        long hash = actors.size;
+        for (int i = 0; i < actors.size; i++)
+        {
+            BaseActor a = actors.get(i);
+            hash = hash * 31 + Float.floatToIntBits( a.getX() );
+            hash = hash * 31 + Float.floatToIntBits( a.getY() );
+            hash = hash * 31 + Float.floatToIntBits( a.getRotation() );
+        }
+        return hash;
+    }
+
+    // extra actors at random places of the world (fixed seed), away from the start of the turtle
+    private void spawn(Stage stage)
+    {
+        Random random = new Random(settings.seed);
+        float width = BaseActor.getWorldBounds().width;
+        float height = BaseActor.getWorldBounds().height;
+        for (int i = 0; i < settings.starfish; i++)
+            new Starfish( 150 + random.nextFloat() * (width - 200), 150 + random.nextFloat() * (height - 200), stage );
+        for (int i = 0; i < settings.rocks; i++)
+            new Rock( 150 + random.nextFloat() * (width - 200), 150 + random.nextFloat() * (height - 200), stage );
+        for (int i = 0; i < settings.swimmers; i++)
+        {
+            Swimmer swimmer = new Swimmer( random.nextFloat() * width, random.nextFloat() * height, stage, random );
+            swimmer.setBatchedMovement(settings.batchedMovement);
+        }
+    }
+
+    // the same swimmers on two stages (same seed): one moved by the MovementSystem, one by applyPhysics()
+    // after every tick position, speed and direction must be equal to the bit - returns the number of differences
+    private long verifyMovement()
+    {
+        int count = Math.max(settings.swimmers, 1000);
+        float dt = 1 / settings.ticksPerSecond;
+        Stage batchedStage = new Stage();
+        Stage serialStage = new Stage();
+        Random batchedRandom = new Random(settings.seed);
+        Random serialRandom = new Random(settings.seed);
+        for (int i = 0; i < count; i++)
+        {
+            new Swimmer( batchedRandom.nextFloat() * 2000, batchedRandom.nextFloat() * 2000, batchedStage, batchedRandom )
+                    .setBatchedMovement(true);
+            new Swimmer( serialRandom.nextFloat() * 2000, serialRandom.nextFloat() * 2000, serialStage, serialRandom );
+        }
+        Array<Swimmer> batched = BaseActor.getList(batchedStage, Swimmer.class);
+        Array<Swimmer> serial = BaseActor.getList(serialStage, Swimmer.class);
+
+        long mismatches = 0;
+        for (int t = 0; t < settings.ticks; t++)
+        {
+            batchedStage.act(dt);
+            BaseActor.applyBatchedPhysics(batchedStage, dt);
+            serialStage.act(dt);
+            for (int i = 0; i < count; i++)
+                if ( !sameMovement(batched.get(i), serial.get(i)) )  mismatches++;
+        }
+        System.out.println("movement check: " + count + " actors x " + settings.ticks + " ticks, mismatches: " + mismatches);
+        batchedStage.dispose();
+        serialStage.dispose();
+        return mismatches;
+    }
+
+    private static boolean sameMovement(BaseActor a, BaseActor b)
+    {
+        return Float.floatToIntBits( a.getX() ) == Float.floatToIntBits( b.getX() )
+                && Float.floatToIntBits( a.getY() ) == Float.floatToIntBits( b.getY() )
+                && Float.floatToIntBits( a.getSpeed() ) == Float.floatToIntBits( b.getSpeed() )
+                && Float.floatToIntBits( a.getMotionAngle() ) == Float.floatToIntBits( b.getMotionAngle() );
+    }
+
+    private void writeResults(long[] tickNanos, long totalNanos, long allocatedBytes, LevelScreen level)
+    {
+        Stage stage = level.getMainStage();
+        ActorPool<Whirlpool> whirlpools = level.getWhirlpoolPool();
+        long[] sorted = Arrays.copyOf(tickNanos, tickNanos.length);
+        Arrays.sort(sorted);
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"ticks\": ").append(settings.ticks).append(",\n");
+        json.append("  \"warmupTicks\": ").append(settings.warmupTicks).append(",\n");
+        json.append("  \"starfish\": ").append(settings.starfish).append(",\n");
+        json.append("  \"rocks\": ").append(settings.rocks).append(",\n");
+        json.append("  \"swimmers\": ").append(settings.swimmers).append(",\n");
+        json.append("  \"batchedMovement\": ").append(settings.batchedMovement).append(",\n");
+        json.append("  \"parallel\": ").append(settings.parallel).append(",\n");
+        json.append("  \"seed\": ").append(settings.seed).append(",\n");
+        json.append("  \"actors\": ").append( BaseActor.count(stage, BaseActor.class) ).append(",\n");
+        json.append("  \"ticksPerSecond\": ").append( settings.ticks / (totalNanos / 1e9) ).append(",\n");
+        json.append("  \"tickMillisP50\": ").append( percentile(sorted, 0.50) / 1e6 ).append(",\n");
+        json.append("  \"tickMillisP99\": ").append( percentile(sorted, 0.99) / 1e6 ).append(",\n");
+        json.append("  \"tickMillisMax\": ").append( sorted[sorted.length - 1] / 1e6 ).append(",\n");
+        json.append("  \"level\": \"").append(settings.level).append("\",\n");
+        json.append("  \"activeChunks\": ").append( level.getLevelStreamer().getActiveChunkCount() ).append(",\n");
+        json.append("  \"chunkLoads\": ").append( level.getLevelStreamer().getLoadedChunkCount() ).append(",\n");
+        json.append("  \"whirlpoolPoolPeak\": ").append( whirlpools.getPeak() ).append(",\n");
+        json.append("  \"whirlpoolPoolFree\": ").append( whirlpools.getFree() ).append(",\n");
+        json.append("  \"whirlpoolPoolMisses\": ").append( whirlpools.getMisses() ).append(",\n");
+        json.append("  \"fingerprint\": ").append( fingerprint(stage) ).append(",\n");
+        json.append("  \"allocatedBytesPerTick\": ").append( allocatedBytes < 0 ? -1 : allocatedBytes / settings.ticks ).append("\n");
+        json.append("}\n");
+
+        FileHandle out = Gdx.files.absolute(settings.outputFile);
+        out.writeString(json.toString(), false);
+        System.out.print(json);
+        System.out.println("written to " + out.path());
+    }
+
+    private static long percentile(long[] sorted, double p)
+    {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[ Math.max(0, Math.min(sorted.length - 1, index)) ];
+    }
+
+    // bytes allocated by this thread so far (HotSpot), -1 if the JVM can not tell
+    private static long allocatedBytes()
+    {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if ( !(bean instanceof com.sun.management.ThreadMXBean) )  return -1;
+        return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes( Thread.currentThread().getId() );
+    }
+}
@@ -0,0 +1,69 @@
+package com.starfishcoll.headless;
+
+import java.io.File;
+
+import com.starfishcoll.LevelScreen;
+
+/**
+ * Parameters of a headless run, from the command line:
+ *   --starfish N  --rocks N  --ticks N  --warmup N  --rate TICKS_PER_SECOND  --seed S  --input SCRIPT  --out FILE
+ *   --swimmers N  --batched-movement true|false    (wandering actors, moved by the MovementSystem or one by one)
+ *   --parallel true|false      (ParallelPhysics: integration and narrow phase of the batched actors on all cores)
+ *   --verify-movement true     (instead of the benchmark: the MovementSystem against applyPhysics, see SimulationRunner)
+ *   --verify-parallel true     (instead of the benchmark: the same level with parallel physics off and on)
+ *   --level FILE               (level file in the assets, streamed by chunks - default: LevelScreen.DEFAULT_LEVEL)
+ *   --record FILE              (the input of the run into a GameInput recording)
+ *   --replay FILE              (the seed and input of a recording instead of --seed and --input)
+ *   --profile FILE             (the measured ticks are rendered - stub GL - and the FrameProfiler metrics of
+ *                               every frame are written: .json summary, .csv per frame)
+ */
+
+public class SimulationSettings
+{
+    public int starfish = 1000;
+    public int rocks = 100;
+    public int ticks = 3000;
+    public int warmupTicks = 600;
+    public float ticksPerSecond = 60;
+    public long seed = 1;
+    public int swimmers = 0;
+    public boolean batchedMovement = false;
+    public boolean parallel = false;
+    public boolean verifyMovement = false;
+    public boolean verifyParallel = false;
+    public String level = LevelScreen.DEFAULT_LEVEL;
+    public String profileFile = null;
+    public String recordFile = null;
+    public String replayFile = null;
+    public String inputScript = ScriptedInput.DEFAULT_SCRIPT;
+    public String outputFile = new File("../../build/simulation-results.json").getAbsolutePath();    // run in core/assets
+
+    public static SimulationSettings parse(String[] args)
+    {
+        SimulationSettings s = new SimulationSettings();
+        for (int i = 0; i + 1 < args.length; i += 2)
+        {
+            String name = args[i];
+            String value = args[i + 1];
+            if      (name.equals("--starfish"))  s.starfish = Integer.parseInt(value);
+            else if (name.equals("--rocks"))     s.rocks = Integer.parseInt(value);
+            else if (name.equals("--ticks"))     s.ticks = Integer.parseInt(value);
+            else if (name.equals("--warmup"))    s.warmupTicks = Integer.parseInt(value);
+            else if (name.equals("--rate"))      s.ticksPerSecond = Float.parseFloat(value);
+            else if (name.equals("--seed"))      s.seed = Long.parseLong(value);
+            else if (name.equals("--swimmers"))  s.swimmers = Integer.parseInt(value);
+            else if (name.equals("--batched-movement"))  s.batchedMovement = Boolean.parseBoolean(value);
+            else if (name.equals("--parallel"))          s.parallel = Boolean.parseBoolean(value);
+            else if (name.equals("--verify-movement"))   s.verifyMovement = Boolean.parseBoolean(value);
+            else if (name.equals("--verify-parallel"))   s.verifyParallel = Boolean.parseBoolean(value);
+            else if (name.equals("--level"))     s.level = value;
+            else if (name.equals("--profile"))   s.profileFile = new File(value).getAbsolutePath();
+            else if (name.equals("--record"))    s.recordFile = new File(value).getAbsolutePath();
+            else if (name.equals("--replay"))    s.replayFile = new File(value).getAbsolutePath();
+            else if (name.equals("--input"))     s.inputScript = value;
+            else if (name.equals("--out"))       s.outputFile = new File(value).getAbsolutePath();
+            else throw new IllegalArgumentException("unknown option: " + name);
+        }
+        return s;
+    }
+}
@@ -0,0 +1,49 @@
+package com.starfishcoll.headless;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.IntBuffer;
+
+import com.badlogic.gdx.graphics.GL20;
+
+/**
+ * A GL20 that does nothing - enough for the headless runs: Stage, SpriteBatch, Texture and BitmapFont can be created
+ * (shaders "compile" and "link", every object gets the id 1), drawing calls are ignored
+ */
+
+public class StubGL20 implements InvocationHandler
+{
+    public static GL20 create()
+    {
+        return (GL20) Proxy.newProxyInstance( StubGL20.class.getClassLoader(), new Class<?>[] { GL20.class }, new StubGL20() );
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args)
+    {
+        String name = method.getName();
+
+        // shader compile / link status OK, no active attributes or uniforms
+        if ( name.equals("glGetShaderiv") || name.equals("glGetProgramiv") )
+        {
+            int parameter = (Integer) args[1];
+            boolean listing = (parameter == GL20.GL_ACTIVE_ATTRIBUTES || parameter == GL20.GL_ACTIVE_UNIFORMS);
+            ((IntBuffer) args[2]).put( 0, listing ? 0 : 1 );
+            return null;
+        }
+        // limits (e.g. max texture size)
+        if ( name.equals("glGetIntegerv") )
+        {
+            ((IntBuffer) args[1]).put( 0, 4096 );
+            return null;
+        }
+
+        Class<?> type = method.getReturnType();
+        if (type == int.class)      return 1;
+        if (type == boolean.class)  return true;
+        if (type == float.class)    return 0f;
+        if (type == String.class)   return "";
+        return null;
+    }
+}
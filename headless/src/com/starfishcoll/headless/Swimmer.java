@@ -0,0 +1,43 @@
+package com.starfishcoll.headless;
+
+import java.util.Random;
+
+import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.starfishcoll.BaseActor;
+
+/**
+ * A wandering actor for the movement runs (a "school of fish"): it swims on a slowly turning heading
+ * for 1 second, then drifts for 3 seconds - so accelerating, decelerating, stopping and starting again all occur.
+ * Its act() does nothing with the new position, so it can be moved by the batched MovementSystem as well.
+ */
+
+public class Swimmer extends BaseActor
+{
+    private float heading;
+    private float turnRate;
+    private int ticks;
+
+    public Swimmer(float x, float y, Stage s, Random random)
+    {
+        super(x, y, s);
+        loadTexture("starfish.png");
+        setBoundaryPolygon(8);
+
+        setAcceleration(100);
+        setMaxSpeed(80 + random.nextFloat() * 40);
+        setDeceleration(40);
+        heading = random.nextFloat() * 360;
+        turnRate = random.nextFloat() * 4 - 2;      // degrees per tick
+        ticks = random.nextInt(240);                // not all in the same phase
+    }
+
+    @Override
+    public void act(float dt)
+    {
+        super.act(dt);
+        ticks++;
+        heading += turnRate;
+        if ( (ticks / 60) % 4 == 0 )  accelerateAtAngle(heading);
+        applyPhysics(dt);           // nothing happens here with batched movement - the MovementSystem moves it later
+    }
+}
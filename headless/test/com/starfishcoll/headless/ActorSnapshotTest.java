@@ -0,0 +1,162 @@
+package com.starfishcoll.headless;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.scenes.scene2d.Actor;
+import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.starfishcoll.BaseActor;
+import com.starfishcoll.BaseGame;
+import com.starfishcoll.GameState;
+import com.starfishcoll.LevelScreen;
+import com.starfishcoll.LevelStreamer;
+import com.starfishcoll.Starfish;
+import com.starfishcoll.StarfishGame;
+import com.starfishcoll.Turtle;
+
+/**
+ * A checkpoint (ActorSnapshot + LevelStreamer state) must put the level back in place with the same actor objects:
+ * a long level is captured at its start, then the turtle swims to the far end collecting starfish (the chunks of the
+ * start are parked, then unloaded) and back (they are made again from their records), then the checkpoint is restored.
+ * The stage must hold exactly the captured actors again - the same objects, in the same z-order, with the same state.
+ */
+
+public class ActorSnapshotTest
+{
+    private static final float DT = 1 / 60f;
+    private static final int WORLD_WIDTH = 8000;
+    private static final int STARFISH_SPACING = 400;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void restoreBringsBackTheSameActors() throws IOException
+    {
+        HeadlessTestSupport.start();
+        ScriptedInput input = new ScriptedInput("NONE:1");       // the turtle is moved by the test
+        input.setInputProcessor( Gdx.input.getInputProcessor() );
+        Gdx.input = input;
+
+        StarfishGame game = new StarfishGame();
+        game.create();
+        BaseGame.setLoadingScreenEnabled(false);
+        LevelScreen level = new LevelScreen( writeLevel().path() );
+        BaseGame.setActiveScreen(level);
+        Stage stage = level.getMainStage();
+        LevelStreamer streamer = level.getLevelStreamer();
+        Turtle turtle = BaseActor.getList(stage, Turtle.class).get(0);
+
+        tick(level, 30);            // the starfish spin, the animations run
+        level.saveCheckpoint();
+        Array<Actor> captured = new Array<Actor>( stage.getRoot().getChildren() );
+        FloatArray capturedState = stateOf(captured);
+        int starfishAtStart = BaseActor.count(stage, Starfish.class);
+
+        // to the far end (through the starfish of its second half) and back to the first starfish
+        int collected = 0;
+        int maxParked = 0;
+        for (int x = 300; x < WORLD_WIDTH; x += STARFISH_SPACING)
+        {
+            collected += swimTo(level, turtle, x, (x < WORLD_WIDTH / 2) ? 50 : 450);
+            maxParked = Math.max( maxParked, streamer.getParkedChunkCount() );
+        }
+        assertTrue("starfish collected: " + collected, collected > 5);
+        assertEquals("the chunks of the start were parked, then unloaded", LevelStreamer.MAX_PARKED_CHUNKS, maxParked);
+        swimTo(level, turtle, 300, 50);
+        assertTrue( "the start is made again from its records", !containsAll(captured, stage.getRoot().getChildren()) );
+        assertEquals( "collected after the checkpoint", 1, swimTo(level, turtle, 300, 450) );
+
+        level.restoreCheckpoint();
+
+        Array<Actor> restored = new Array<Actor>( stage.getRoot().getChildren() );
+        assertEquals("actors on the stage", captured.size, restored.size);
+        for (int i = 0; i < captured.size; i++)
+            assertSame("the actor at z-index " + i, captured.get(i), restored.get(i));
+        FloatArray restoredState = stateOf(restored);
+        for (int i = 0; i < capturedState.size; i++)
+            assertEquals("state value " + i, Float.floatToIntBits( capturedState.get(i) ),
+                    Float.floatToIntBits( restoredState.get(i) ));
+        assertEquals( starfishAtStart, BaseActor.count(stage, Starfish.class) );
+
+        // playing on: the streamer knows the restored chunks, it does not make their actors again
+        tick(level, 2);
+        assertTrue( "no new actors", containsAll(captured, stage.getRoot().getChildren()) );
+
+        game.dispose();         // (also the level: the current screen)
+    }
+
+    // a level of one row of chunks: a starfish every STARFISH_SPACING, rocks and signs between them
+    private FileHandle writeLevel() throws IOException
+    {
+        StringBuilder text = new StringBuilder();
+        text.append("world ").append(WORLD_WIDTH).append(" 900 400\n");
+        text.append("turtle 20 20\n");
+        for (int x = 300; x < WORLD_WIDTH; x += STARFISH_SPACING)
+        {
+            text.append("starfish ").append(x).append(" 450\n");
+            text.append("rock ").append(x + 200).append(" 700\n");
+        }
+        text.append("sign 100 300 \"The start\"\n");
+        text.append("sign 7500 300 \"The far end\"\n");
+        File file = folder.newFile("long.level");
+        FileHandle handle = new FileHandle(file);
+        handle.writeString(text.toString(), false, "UTF-8");
+        return handle;
+    }
+
+    // the turtle is put there and the level plays on until the starfish there has faded - returns the ones collected
+    private static int swimTo(LevelScreen level, Turtle turtle, float x, float y)
+    {
+        GameState state = GameState.of( level.getMainStage() );
+        int before = state.getStarfishRemaining();
+        turtle.centerAtPosition(x, y);
+        tick(level, 90);
+        return before - state.getStarfishRemaining();
+    }
+
+    private static void tick(LevelScreen level, int ticks)
+    {
+        for (int i = 0; i < ticks; i++)
+            level.tick(DT);
+    }
+
+    private static boolean containsAll(Array<Actor> expected, Iterable<Actor> actors)
+    {
+        for (Actor a : actors)
+            if ( !expected.contains(a, true) )  return false;
+        return true;
+    }
+
+    // what the snapshot keeps of each actor, through the public getters
+    private static FloatArray stateOf(Array<Actor> actors)
+    {
+        FloatArray state = new FloatArray();
+        for (int i = 0; i < actors.size; i++)
+        {
+            Actor a = actors.get(i);
+            Color c = a.getColor();
+            state.add( a.getX(), a.getY(), a.getRotation() );
+            state.add( c.r, c.g, c.b, c.a );
+            state.add( a.isVisible() ? 1 : 0 );
+            if (a instanceof BaseActor)
+                state.add( ((BaseActor) a).getSpeed(), ((BaseActor) a).getMotionAngle() );
+            if (a instanceof Starfish)
+                state.add( ((Starfish) a).isCollected() ? 1 : 0 );
+        }
+        return state;
+    }
+}
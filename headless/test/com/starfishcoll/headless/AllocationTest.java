@@ -0,0 +1,83 @@
+package com.starfishcoll.headless;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Test;
+
+import com.badlogic.gdx.Gdx;
+import com.starfishcoll.BaseGame;
+import com.starfishcoll.LevelScreen;
+import com.starfishcoll.StarfishGame;
+
+/**
+ * The act/update path of a level must not allocate once it is warmed up (BaseActor, Turtle, LevelScreen):
+ * the turtle swims the default input script through the standard level - bumping into rocks, collecting starfish -
+ * and the bytes allocated by the test thread are counted (HotSpot ThreadMXBean)
+ * The query itself may allocate (e.g. JDK 11+: an array of thread ids): its cost is measured once and subtracted,
+ * as the FrameProfiler does. The ticks are measured in windows (longer than the input script) until one is clean:
+ * the JVM may allocate now and then in this thread on its own - an allocation of the game shows up in every window.
+ */
+
+public class AllocationTest
+{
+    private static final float DT = 1 / 60f;
+    private static final int WARMUP_TICKS = 2000;
+    private static final int WINDOW_TICKS = 600;
+    private static final int MAX_WINDOWS = 10;
+
+    private static com.sun.management.ThreadMXBean allocationBean;      // looked up once
+    private static long threadId;
+
+    @Test
+    public void noAllocationAfterWarmup()
+    {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue( "the JVM counts the allocated bytes", threads instanceof com.sun.management.ThreadMXBean );
+        allocationBean = (com.sun.management.ThreadMXBean) threads;
+        threadId = Thread.currentThread().getId();
+        HeadlessTestSupport.start();
+        ScriptedInput input = new ScriptedInput(ScriptedInput.DEFAULT_SCRIPT);
+        input.setInputProcessor( Gdx.input.getInputProcessor() );
+        Gdx.input = input;
+
+        StarfishGame game = new StarfishGame();
+        game.create();
+        BaseGame.setLoadingScreenEnabled(false);
+        BaseGame.setActiveScreen(StarfishGame.LEVEL);
+        LevelScreen level = (LevelScreen) game.getScreen();
+
+        for (int i = 0; i < WARMUP_TICKS; i++)      // JIT warm-up, the first collisions and whirlpools
+        {
+            level.tick(DT);
+            input.advance();
+        }
+
+        long first = allocatedBytes();          // two queries back to back: what one query allocates
+        long queryCost = Math.max(0, allocatedBytes() - first);
+        long allocated = -1;
+        for (int w = 0; w < MAX_WINDOWS && allocated != 0; w++)
+        {
+            long before = allocatedBytes();
+            for (int i = 0; i < WINDOW_TICKS; i++)
+            {
+                level.tick(DT);
+                input.advance();
+            }
+            long bytes = Math.max(0, allocatedBytes() - before - queryCost);
+            allocated = (allocated < 0) ? bytes : Math.min(allocated, bytes);
+        }
+        game.dispose();
+
+        assertEquals("bytes allocated in " + WINDOW_TICKS + " ticks (the least of " + MAX_WINDOWS + " windows)",
+                0, allocated);
+    }
+
+    // bytes allocated by this thread so far
+    private static long allocatedBytes()
+    {
+        return allocationBean.getThreadAllocatedBytes(threadId);
+    }
+}
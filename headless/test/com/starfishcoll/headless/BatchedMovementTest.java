@@ -0,0 +1,122 @@
+package com.starfishcoll.headless;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.badlogic.gdx.utils.Array;
+import com.starfishcoll.BaseActor;
+
+/**
+ * The batched MovementSystem must move an actor exactly as BaseActor.applyPhysics() does - to the bit -
+ * whichever movement setter its act() calls
+ */
+
+public class BatchedMovementTest
+{
+    private static final float DT = 1 / 60f;
+
+    private Stage batchedStage;
+    private Stage serialStage;
+
+    @Before
+    public void setUp()
+    {
+        HeadlessTestSupport.start();
+        batchedStage = new Stage();
+        serialStage = new Stage();
+    }
+
+    @After
+    public void tearDown()
+    {
+        batchedStage.dispose();
+        serialStage.dispose();
+    }
+
+    @Test
+    public void setSpeedOnRestingActor()
+    {
+        BaseActor batched = new BaseActor(0, 0, batchedStage);
+        batched.setBatchedMovement(true);
+        BaseActor serial = new BaseActor(0, 0, serialStage);
+
+        batched.setSpeed(100);
+        serial.setSpeed(100);
+        assertEquals(100, serial.getSpeed(), 0);
+        assertSame("setSpeed", serial, batched);
+
+        batched.setMotionAngle(135);
+        serial.setMotionAngle(135);
+        assertSame("setMotionAngle", serial, batched);
+    }
+
+    @Test
+    public void everySetterOnBothPaths()
+    {
+        int count = 200;
+        for (int i = 0; i < count; i++)
+        {
+            new Driven(i * 10, i * 5, batchedStage, i).setBatchedMovement(true);
+            new Driven(i * 10, i * 5, serialStage, i);
+        }
+        Array<Driven> batched = BaseActor.getList(batchedStage, Driven.class);
+        Array<Driven> serial = BaseActor.getList(serialStage, Driven.class);
+
+        for (int t = 0; t < 600; t++)
+        {
+            batchedStage.act(DT);
+            BaseActor.applyBatchedPhysics(batchedStage, DT);
+            serialStage.act(DT);
+            for (int i = 0; i < count; i++)
+                assertSame("tick " + t + ", actor " + i, serial.get(i), batched.get(i));
+        }
+    }
+
+    private static void assertSame(String message, BaseActor expected, BaseActor actual)
+    {
+        assertEquals(message + " x", Float.floatToIntBits( expected.getX() ), Float.floatToIntBits( actual.getX() ));
+        assertEquals(message + " y", Float.floatToIntBits( expected.getY() ), Float.floatToIntBits( actual.getY() ));
+        assertEquals(message + " speed", Float.floatToIntBits( expected.getSpeed() ), Float.floatToIntBits( actual.getSpeed() ));
+        assertEquals(message + " angle", Float.floatToIntBits( expected.getMotionAngle() ),
+                Float.floatToIntBits( actual.getMotionAngle() ));
+    }
+
+    // calls a random movement setter on every tick (the same sequence for the same seed), then moves
+    public static class Driven extends BaseActor
+    {
+        private Random random;
+
+        public Driven(float x, float y, Stage s, long seed)
+        {
+            super(x, y, s);
+            random = new Random(seed);
+            setAcceleration(100);
+            setMaxSpeed(120);
+            setDeceleration(40);
+        }
+
+        @Override
+        public void act(float dt)
+        {
+            super.act(dt);
+            switch ( random.nextInt(10) )
+            {
+                case 0:  setSpeed( random.nextFloat() * 150 );  break;
+                case 1:  setMotionAngle( random.nextFloat() * 360 );  break;
+                case 2:  setAcceleration( 50 + random.nextFloat() * 200 );  break;
+                case 3:  setMaxSpeed( 40 + random.nextFloat() * 160 );  break;
+                case 4:  setDeceleration( random.nextFloat() * 100 );  break;
+                case 5:  setRotation( random.nextFloat() * 360 );  accelerateForward();  break;
+                case 6:  setSpeed(0);  break;
+                default: accelerateAtAngle( random.nextFloat() * 360 );  break;
+            }
+            applyPhysics(dt);       // nothing happens here with batched movement - the MovementSystem moves it later
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.starfishcoll.headless;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.backends.headless.mock.graphics.MockGraphics;
+
+/**
+ * The libGDX environment of the tests: the headless backend with the stub GL (as the SimulationRunner has it),
+ * started once per JVM - Stage, SpriteBatch, Texture and the assets of core/assets can be used from the test thread
+ * Every test gets a screen of the desktop window size (the mock one is 0 x 0: the camera would see nothing)
+ */
+
+public class HeadlessTestSupport
+{
+    public static final int WIDTH = 800;        // as in DesktopLauncher
+    public static final int HEIGHT = 600;
+
+    private static ScriptedInput input;
+
+    public static synchronized ScriptedInput start()
+    {
+        if (input == null)
+        {
+            HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+            config.updatesPerSecond = -1;       // the application loop does not render: the tests drive the frames
+            new HeadlessApplication( new ApplicationAdapter() { }, config );
+            Gdx.gl = Gdx.gl20 = StubGL20.create();
+            input = new ScriptedInput("NONE:1");
+            Gdx.input = input;
+        }
+        Gdx.graphics = new WindowGraphics();
+        return input;
+    }
+
+    public static class WindowGraphics extends MockGraphics
+    {
+        @Override
+        public int getWidth() { return WIDTH; }
+
+        @Override
+        public int getHeight() { return HEIGHT; }
+
+        @Override
+        public int getBackBufferWidth() { return WIDTH; }
+
+        @Override
+        public int getBackBufferHeight() { return HEIGHT; }
+    }
+}
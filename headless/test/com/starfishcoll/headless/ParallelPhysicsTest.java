@@ -0,0 +1,44 @@
+package com.starfishcoll.headless;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.starfishcoll.BaseGame;
+import com.starfishcoll.ParallelPhysics;
+
+/**
+ * The parallel physics (MovementSystem, ContactFinder) must give the same game as the serial one:
+ * the seeded level of the SimulationRunner is played twice with the same input, parallel off and on,
+ * and the fingerprint of the stage (position and rotation of every actor) is compared after every tick
+ * (enough batched swimmers that the work is really split: ParallelPhysics.MIN_PARALLEL_ITEMS)
+ */
+
+public class ParallelPhysicsTest
+{
+    private static final int TICKS = 300;
+
+    @After
+    public void tearDown()
+    {
+        ParallelPhysics.setEnabled(false);
+    }
+
+    @Test
+    public void parallelEqualsSerial()
+    {
+        HeadlessTestSupport.start();
+        new BaseGame() { }.create();
+        BaseGame.setLoadingScreenEnabled(false);
+
+        SimulationSettings settings = SimulationSettings.parse( new String[] {
+                "--starfish", "200", "--rocks", "50", "--swimmers", "3000", "--batched-movement", "true", "--seed", "7" } );
+        SimulationRunner runner = new SimulationRunner(settings);
+        long[] serial = runner.runForFingerprints(false, TICKS);
+        long[] parallel = runner.runForFingerprints(true, TICKS);
+
+        for (int t = 0; t < TICKS; t++)
+            assertEquals("fingerprint after tick " + t, serial[t], parallel[t]);
+    }
+}
@@ -0,0 +1,118 @@
+package com.starfishcoll.headless;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input.Keys;
+import com.badlogic.gdx.backends.headless.mock.graphics.MockGraphics;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntMap;
+import com.starfishcoll.BaseGame;
+import com.starfishcoll.BaseScreen;
+import com.starfishcoll.GameInput;
+import com.starfishcoll.LevelScreen;
+import com.starfishcoll.StarfishGame;
+import com.starfishcoll.Turtle;
+
+/**
+ * A session recorded from the MenuScreen (ENTER starts the level between two frames) and played back with other
+ * frame lengths: every tick of the level must see the same state - the level starts at the same tick
+ */
+
+public class RecordReplayTest
+{
+    private static final int TICKS = 300;
+
+    private float frameTime;        // the delta time of the next frame
+
+    @Test
+    public void replayThroughMenu()
+    {
+        HeadlessTestSupport.start();
+        Gdx.graphics = new MockGraphics()
+        {
+            @Override
+            public float getDeltaTime()
+            {
+                return frameTime;
+            }
+        };
+        BaseGame.setLoadingScreenEnabled(false);
+
+        // live: the frames are 1 or 2 ticks long, ENTER comes between two frames
+        IntMap<Long> recorded = new IntMap<Long>();
+        StarfishGame game = startGame(recorded);
+        GameInput.startRecording(7);
+        int frame = 0;
+        while (GameInput.getTick() < TICKS)
+        {
+            if (frame == 25)
+            {
+                Gdx.input.getInputProcessor().keyDown(Keys.ENTER);
+                Gdx.input.getInputProcessor().keyUp(Keys.ENTER);
+            }
+            frameTime = (frame % 3 == 0) ? 2 / 60f : 1 / 60f;
+            game.render();
+            frame++;
+        }
+        byte[] log = GameInput.stopRecording();
+        game.dispose();
+
+        // played back: 3 ticks per frame (the ENTER falls inside a frame now)
+        IntMap<Long> replayed = new IntMap<Long>();
+        game = startGame(replayed);
+        GameInput.startReplay(log);
+        frameTime = 3 / 60f;
+        while (GameInput.getTick() < TICKS)
+            game.render();
+        GameInput.stopReplay();
+        game.dispose();
+
+        assertTrue("the level has started", recorded.size > 100);
+        int first = TICKS;
+        for (IntMap.Entry<Long> entry : recorded)
+            first = Math.min(first, entry.key);
+        assertTrue("level ticks replayed: first tick " + first, replayed.containsKey(first));
+        for (IntMap.Entry<Long> entry : recorded)
+            if ( replayed.containsKey(entry.key) )
+                assertEquals("tick " + entry.key, entry.value, replayed.get(entry.key));
+    }
+
+    // the game as it starts, with a level that writes the turtle position of every tick into the trace
+    private static StarfishGame startGame(final IntMap<Long> trace)
+    {
+        ScriptedInput input = new ScriptedInput("RIGHT+UP:1");      // held all the time
+        input.setInputProcessor( Gdx.input.getInputProcessor() );
+        Gdx.input = input;
+        StarfishGame game = new StarfishGame();
+        game.create();
+        BaseGame.registerScreen(StarfishGame.LEVEL, new BaseGame.ScreenFactory() {
+            @Override
+            public BaseScreen create() { return new TracedLevel(trace); }
+        });
+        return game;
+    }
+
+    private static class TracedLevel extends LevelScreen
+    {
+        private IntMap<Long> trace;
+
+        TracedLevel(IntMap<Long> trace)
+        {
+            this.trace = trace;
+        }
+
+        @Override
+        public void update(float dt)
+        {
+            super.update(dt);
+            Array<Turtle> turtles = Turtle.getList(mainStage, Turtle.class);
+            Turtle turtle = turtles.get(0);
+            long position = ((long) Float.floatToIntBits( turtle.getX() ) << 32) | (Float.floatToIntBits( turtle.getY() ) & 0xFFFFFFFFL);
+            trace.put( GameInput.getTick(), position );
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.starfishcoll.headless;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.badlogic.gdx.Gdx;
+import com.starfishcoll.AssetCache;
+import com.starfishcoll.BaseGame;
+import com.starfishcoll.FrameProfiler;
+import com.starfishcoll.LevelScreen;
+import com.starfishcoll.StarfishGame;
+
+/**
+ * The sprites of the atlas (core:packTextures) must save render calls: SpriteBatch flushes only where the texture
+ * really changes. The same frame of the standard level is drawn with the atlas lookup of the AssetCache off
+ * (every image its own texture), then on, and the render calls of both stages are counted by the FrameProfiler
+ * (the stub GL draws nothing). Both numbers are reported - the atlas frame must need fewer.
+ */
+
+public class RenderCallTest
+{
+    private static final float DT = 1 / 60f;
+    private static final int FRAMES = 10;
+
+    @After
+    public void tearDown()
+    {
+        AssetCache.setAtlasEnabled(true);
+        FrameProfiler.setEnabled(false);
+    }
+
+    @Test
+    public void atlasSavesRenderCalls()
+    {
+        HeadlessTestSupport.start();
+        assertTrue( "the sprites are packed (core:packTextures)", Gdx.files.internal(AssetCache.ATLAS_FILE).exists() );
+
+        int looseCalls = renderCallsOfLevelFrame(false);
+        int atlasCalls = renderCallsOfLevelFrame(true);
+        System.out.println("render calls of a level frame: " + looseCalls + " without the atlas, " + atlasCalls + " with it");
+
+        assertTrue("render calls without the atlas: " + looseCalls + ", with it: " + atlasCalls, atlasCalls < looseCalls);
+    }
+
+    // a new game with the standard level, drawn for some frames: the render calls of the last one
+    private static int renderCallsOfLevelFrame(boolean atlas)
+    {
+        AssetCache.setAtlasEnabled(atlas);       // before anything is obtained from the cache
+        ScriptedInput input = new ScriptedInput("NONE:1");
+        input.setInputProcessor( Gdx.input.getInputProcessor() );
+        Gdx.input = input;
+        int texturesBefore = AssetCache.getTextureCount();     // (the earlier tests may have left some)
+
+        StarfishGame game = new StarfishGame();
+        game.create();
+        BaseGame.setLoadingScreenEnabled(false);
+        BaseGame.setActiveScreen(StarfishGame.LEVEL);
+        LevelScreen level = (LevelScreen) game.getScreen();
+
+        FrameProfiler.setEnabled(true);
+        for (int i = 0; i < FRAMES; i++)
+            level.render(DT);
+        int renderCalls = FrameProfiler.getRenderCalls(0);
+        FrameProfiler.setEnabled(false);
+        game.dispose();
+        assertEquals("textures left by the game (atlas " + atlas + ")", texturesBefore, AssetCache.getTextureCount());
+        return renderCalls;
+    }
+}
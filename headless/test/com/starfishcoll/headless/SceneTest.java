@@ -0,0 +1,227 @@
+package com.starfishcoll.headless;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.scenes.scene2d.Actor;
+import com.starfishcoll.Scene;
+import com.starfishcoll.SceneActions;
+import com.starfishcoll.SceneScript;
+import com.starfishcoll.SceneSegment;
+
+/**
+ * The Scene timeline: parallel tracks, holds, seeking in both directions, skip, the completion callbacks
+ * and the window of a scripted scene (the played segments are dropped while it goes on)
+ */
+
+public class SceneTest
+{
+    private static final float DT = 1 / 60f;
+    private static final float EPSILON = 0.001f;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Scene scene;
+    private Actor a;
+    private Actor b;
+    private int[] calls;        // completion callbacks: [0] segment 1, [1] segment 3, [2] the whole scene
+
+    @Before
+    public void setUp()
+    {
+        scene = new Scene();
+        a = new Actor();
+        b = new Actor();
+        calls = new int[3];
+        scene.setOnFinished( counter(2) );
+    }
+
+    @Test
+    public void parallelSegments()
+    {
+        scene.addSegment( new SceneSegment(a, SceneActions.moveTo(100, 0, 1)) );
+        scene.addParallelSegment( new SceneSegment(b, SceneActions.moveTo(0, 50, 1)) );
+        scene.addSegment( new SceneSegment(a, SceneActions.moveTo(100, 100, 1)) );
+        assertEquals(2, scene.getDuration(), EPSILON);
+
+        scene.start();
+        scene.act(0.5f);
+        assertPosition("a, both tracks half way", a, 50, 0);
+        assertPosition("b, both tracks half way", b, 0, 25);
+
+        scene.act(1);       // 1.5: the parallel tracks are done, the next segment is half way
+        assertPosition("a at 1.5", a, 100, 50);
+        assertPosition("b at 1.5", b, 0, 50);
+        assertFalse( scene.isSceneFinished() );
+
+        scene.act(1);
+        assertPosition("a at the end", a, 100, 100);
+        assertTrue( scene.isSceneFinished() );
+        assertEquals(1, calls[2]);
+    }
+
+    @Test
+    public void holdAndResume()
+    {
+        addHoldScene();
+        scene.start();
+        scene.act(1);
+        assertTrue("the clock stops at the hold", scene.isHolding());
+
+        for (int i = 0; i < 300; i++)
+            scene.act(DT);
+        assertEquals(1, scene.getTime(), EPSILON);
+        assertPosition("waiting at the hold", a, 100, 0);
+
+        scene.resume();
+        assertFalse( scene.isHolding() );
+        scene.act(0.5f);
+        assertPosition("half way after the hold", a, 100, 50);
+        scene.act(1);
+        assertPosition("at the end", a, 100, 100);
+        assertTrue( scene.isSceneFinished() );
+    }
+
+    @Test
+    public void seekBackwardsAndForwardsOverHold()
+    {
+        addHoldScene();
+        scene.start();
+        scene.act(1);
+        assertTrue( scene.isHolding() );
+
+        scene.seek(1.5f);       // forwards, over the hold
+        assertFalse("the hold is passed", scene.isHolding());
+        assertEquals(1.5f, scene.getTime(), EPSILON);
+        assertPosition("seek to 1.5", a, 100, 50);
+
+        scene.seek(0.5f);       // backwards: from the start state
+        assertPosition("seek back to 0.5", a, 50, 0);
+        scene.seek(0);
+        assertPosition("seek back to 0", a, 0, 0);
+
+        scene.seek(0.25f);      // forwards again, before the hold: the scene plays on from there
+        assertPosition("seek to 0.25", a, 25, 0);
+        scene.act(0.75f);
+        assertTrue("the hold is met again", scene.isHolding());
+        assertPosition("at the hold", a, 100, 0);
+        assertEquals("segment 1 played to its end twice, passed by the seeks", 2, calls[0]);
+    }
+
+    @Test
+    public void skip()
+    {
+        addHoldScene();
+        scene.start();
+        scene.act(0.5f);
+        scene.skip();
+        assertPosition("the end state", a, 100, 100);
+        assertTrue( scene.isSceneFinished() );
+        assertEquals("the scene callback", 1, calls[2]);
+        assertEquals("the callbacks of the skipped segments", 0, calls[0] + calls[1]);
+
+        scene.act(1);       // nothing more happens
+        assertEquals(1, calls[2]);
+    }
+
+    @Test
+    public void completionCallbacks()
+    {
+        addHoldScene();
+        scene.start();
+        scene.act(0.99f);
+        assertEquals(0, calls[0]);
+        scene.act(0.01f);
+        assertEquals("segment 1 completed", 1, calls[0]);
+
+        scene.resume();
+        scene.act(0.5f);
+        assertEquals(0, calls[1]);
+        assertEquals(0, calls[2]);
+        scene.act(0.5f);
+        assertEquals("segment 3 completed", 1, calls[1]);
+        assertEquals("the scene completed", 1, calls[2]);
+
+        scene.act(1);       // each one once
+        assertEquals(1, calls[0]);
+        assertEquals(1, calls[1]);
+        assertEquals(1, calls[2]);
+    }
+
+    @Test
+    public void scriptedSceneWindowCompacts() throws IOException
+    {
+        int lines = 100;
+        StringBuilder text = new StringBuilder("# 100 short steps of one actor\n");
+        for (int i = 0; i < lines; i++)
+            text.append( (i % 2 == 0) ? "a moveBy 1 0 0.1\n" : "& b moveBy 0 1 0.1\n" );
+        File file = folder.newFile("long.scene");
+        FileHandle handle = new FileHandle(file);
+        handle.writeString(text.toString(), false, "UTF-8");
+
+        SceneScript script = new SceneScript(handle);
+        script.setActor("a", a);
+        script.setActor("b", b);
+        scene.setScript(script);
+        scene.start();
+
+        int maxSegments = 0;
+        for (int i = 0; i < 10 * 60 && !scene.isSceneFinished(); i++)
+        {
+            scene.act(DT);
+            maxSegments = Math.max( maxSegments, scene.getSegmentCount() );
+        }
+        assertTrue( scene.isSceneFinished() );
+        assertEquals(1, calls[2]);
+        assertPosition("the end of the script", a, 50, 0);
+        assertPosition("the end of the script", b, 0, 50);
+        // the lookahead (8 waiting segments) + at most as many played ones until the next compaction
+        assertTrue("segments held at once: " + maxSegments + " of " + lines, maxSegments <= 16);
+
+        scene.seek(2.05f);      // backwards: the script is read again from its start
+        assertPosition("seek back into the script", a, 20.5f, 0);
+        assertPosition("seek back into the script", b, 0, 20.5f);
+        assertTrue( scene.getSegmentCount() <= 16 );
+    }
+
+    // a to the right (1 s), a hold, a up (1 s)
+    private void addHoldScene()
+    {
+        SceneSegment first = new SceneSegment(a, SceneActions.moveTo(100, 0, 1));
+        first.setOnFinished( counter(0) );
+        scene.addSegment(first);
+        scene.addSegment( new SceneSegment(a, SceneActions.pause()) );
+        SceneSegment last = new SceneSegment(a, SceneActions.moveTo(100, 100, 1));
+        last.setOnFinished( counter(1) );
+        scene.addSegment(last);
+    }
+
+    private Runnable counter(final int index)
+    {
+        return new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                calls[index]++;
+            }
+        };
+    }
+
+    private static void assertPosition(String message, Actor actor, float x, float y)
+    {
+        assertEquals(message + " x", x, actor.getX(), EPSILON);
+        assertEquals(message + " y", y, actor.getY(), EPSILON);
+    }
+}